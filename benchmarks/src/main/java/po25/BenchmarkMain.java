@@ -0,0 +1,30 @@
+package po25;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the parser benchmarks with the GC profiler, so every result shows the allocation rate
+ * ({@code gc.alloc.rate.norm}: bytes per operation) next to the throughput.
+ * <pre>
+ * mvn -pl benchmarks -am package
+ * java -jar benchmarks/target/benchmarks.jar            # all benchmarks
+ * java -jar benchmarks/target/benchmarks.jar Satori     # only those matching a regex
+ * </pre>
+ * Any other JMH command line option is passed through.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
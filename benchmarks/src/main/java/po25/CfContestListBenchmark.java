@@ -0,0 +1,38 @@
+package po25;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a contest.list response. The fixture holds a few contests of every phase; the
+ * response is built by repeating them under new ids up to the size of the real list
+ * ({@link Fixtures#contestList}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CfContestListBenchmark {
+    /** contest.list returns about 2000 contests (gym excluded). */
+    @Param({"100", "2000"})
+    public int contests;
+
+    private byte[] response;
+    private CodeforcesPlatform platform;
+
+    @Setup
+    public void setup() {
+        response = Fixtures.contestList(contests);
+        platform = new CodeforcesPlatform();
+    }
+
+    @Benchmark
+    public List<CfContest> readContestList() throws Exception {
+        return CfJson.readContestList(new ByteArrayInputStream(response), platform);
+    }
+}
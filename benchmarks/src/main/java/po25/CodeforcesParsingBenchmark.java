@@ -0,0 +1,52 @@
+package po25;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of Codeforces pages: statement samples and submission times from the status table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeforcesParsingBenchmark {
+    private Element statement;
+    private Element legacyStatement;
+    private String[] submissionTimes;
+
+    @Setup
+    public void setup() {
+        statement = Jsoup.parse(Fixtures.read("cf-problem.html")).selectFirst(".problem-statement");
+        legacyStatement = Jsoup.parse(Fixtures.read("cf-problem-legacy.html")).selectFirst(".problem-statement");
+        submissionTimes = Fixtures.read("cf-status-times.txt").split("\n");
+    }
+
+    /** Samples split into {@code .test-example-line} elements, as on current problem pages. */
+    @Benchmark
+    public void parseSample(Blackhole bh) {
+        bh.consume(CfTask.parseSample(statement, ".sample-test .input"));
+        bh.consume(CfTask.parseSample(statement, ".sample-test .output"));
+    }
+
+    /** Samples as a single {@code <pre>} with {@code <br>} line breaks, which go through the replace chain. */
+    @Benchmark
+    public void parseSampleLegacy(Blackhole bh) {
+        bh.consume(CfTask.parseSample(legacyStatement, ".sample-test .input"));
+        bh.consume(CfTask.parseSample(legacyStatement, ".sample-test .output"));
+    }
+
+    /** One page of the status table: 50 submission times. */
+    @Benchmark
+    public void parseSubmissionTimes(Blackhole bh) {
+        for (String time : submissionTimes) {
+            bh.consume(CfTask.parseSubmissionTime(time));
+        }
+    }
+}
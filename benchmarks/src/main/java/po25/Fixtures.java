@@ -0,0 +1,60 @@
+package po25;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pages and API responses the benchmarks parse, stored under {@code /fixtures} on the classpath.
+ */
+final class Fixtures {
+    private static final Pattern CONTEST_ID = Pattern.compile("\"id\":(\\d+)");
+
+    private Fixtures() {
+    }
+
+    static String read(String name) {
+        return new String(readBytes(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds a contest.list response with {@code contests} entries by repeating the fixture's
+     * contests; repeats get the original id plus a multiple of 10000, so ids stay unique.
+     */
+    static byte[] contestList(int contests) {
+        String fixture = read("cf-contest-list.json");
+        int start = fixture.indexOf('[') + 1;
+        int end = fixture.lastIndexOf(']');
+        String[] entries = fixture.substring(start, end).split("(?<=\\}),(?=\\{)");
+
+        StringBuilder body = new StringBuilder(fixture.substring(0, start));
+        for (int i = 0; i < contests; i++) {
+            String entry = entries[i % entries.length];
+            int round = i / entries.length;
+            if (i > 0) body.append(',');
+            if (round == 0) {
+                body.append(entry);
+                continue;
+            }
+            Matcher id = CONTEST_ID.matcher(entry);
+            id.find();
+            body.append(entry, 0, id.start(1))
+                    .append(Long.parseLong(id.group(1)) + 10000L * round)
+                    .append(entry, id.end(1), entry.length());
+        }
+        body.append(fixture.substring(end));
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] readBytes(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IllegalArgumentException("No fixture " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package po25;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full loads against a {@link ReplayServer} on the loopback interface, from a new platform
+ * object each time, so the whole request path (transport, Satori request scheduler, parsing)
+ * is measured without a network. The server's latency stands in for the real servers'.
+ * <p>
+ * Satori: session check, contest list, the contest's 15 tasks and the results table of each
+ * (18 requests). Codeforces: contest.list and contest.standings of one contest.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayLoadBenchmark {
+    private static final String HTML = "text/html; charset=utf-8";
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    /** Delay of every response, in milliseconds. */
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    private ReplayServer server;
+    private Path home;
+
+    @Setup
+    public void setup() throws Exception {
+        // sessions and caches of the run must not mix with the user's
+        home = Files.createTempDirectory("dccp-bench");
+        System.setProperty("dccp.home", home.toString());
+
+        server = ReplayServer.create(0)
+                .serve("GET", "/", page("satori-home.html"))
+                .serve("POST", "/login", new ReplayServer.Exchange(200,
+                        Map.of("Content-Type", List.of(HTML), "Set-Cookie", List.of(SatoriPlatform.SESSION_COOKIE + "=replay; Path=/")),
+                        Fixtures.readBytes("satori-home.html")))
+                .serve("GET", "/contest/select", page("satori-contests.html"))
+                .serve("GET", "/contest/5812/problems", page("satori-problems.html"))
+                .serve("GET", "/contest/5812/results", page("satori-results.html"))
+                .serve("GET", "/api/contest.list", ReplayServer.Exchange.ok(JSON, Fixtures.contestList(2000)))
+                .serve("GET", "/api/contest.standings", ReplayServer.Exchange.ok(JSON, Fixtures.readBytes("cf-standings.json")))
+                .latency(Duration.ofMillis(latencyMillis), Duration.ZERO)
+                .start();
+
+        // saves the session file that every new SatoriPlatform then picks up
+        new SatoriPlatform(server.baseUrl()).login("bench", "bench".toCharArray());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+        try (var files = Files.walk(home)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Submission> satoriSubmissionHistory() throws Exception {
+        return new SatoriPlatform(server.baseUrl()).getSubmissionHistory();
+    }
+
+    @Benchmark
+    public List<Task> codeforcesContestTasks() throws Exception {
+        return new CodeforcesPlatform(server.baseUrl()).getContestById("2094").orElseThrow().getTasks();
+    }
+
+    private static ReplayServer.Exchange page(String fixture) {
+        return ReplayServer.Exchange.ok(HTML, Fixtures.readBytes(fixture));
+    }
+}
@@ -0,0 +1,374 @@
+package po25;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Satori and Codeforces servers, so that full contest and submission loads
+ * run without a network.
+ * <p>
+ * In replay mode the server answers from recorded exchanges: a request is matched by method, path
+ * and query, and then by method and path alone, so one recorded page can answer e.g. the results
+ * table of every task. In record mode it forwards every request to the real server and saves the
+ * response, including redirects and cookies, to a directory that replay mode reads back.
+ * Responses can be delayed and a share of them failed, to see how the client behaves on a slow or
+ * flaky server. Point the client at it with {@link SatoriPlatform#SatoriPlatform(String)},
+ * {@link CodeforcesPlatform#CodeforcesPlatform(String)} or the {@code dccp.satori.baseUrl} /
+ * {@code dccp.codeforces.baseUrl} properties, and keep its sessions apart with {@code dccp.home}:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar po25.ReplayServer record https://codeforces.com fixtures/cf 8081
+ * java -cp benchmarks/target/benchmarks.jar po25.ReplayServer replay fixtures/cf 8081 --latency=50 --jitter=20 --errors=0.05
+ * java -Ddccp.codeforces.baseUrl=http://127.0.0.1:8081 -Ddccp.home=/tmp/dccp-replay -jar ui-cli/target/ui-cli.jar ...
+ * </pre>
+ */
+public final class ReplayServer implements AutoCloseable {
+    private static final String INDEX_FILE = "exchanges.properties";
+    /** Response headers worth keeping; the rest (dates, caching, tracking) only make recordings differ. */
+    private static final List<String> RECORDED_HEADERS =
+            List.of("Content-Type", "Location", "Set-Cookie", "ETag", "Last-Modified");
+
+    /**
+     * A recorded or made-up response.
+     */
+    public static final class Exchange {
+        final int status;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        public Exchange(int status, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * @return a 200 response with the given content type.
+         */
+        public static Exchange ok(String contentType, byte[] body) {
+            return new Exchange(200, Map.of("Content-Type", List.of(contentType)), body);
+        }
+    }
+
+    private final HttpServer server;
+    private final Map<String, Exchange> exchanges = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    /** Set in record mode: requests go there and the responses are saved to {@link #recordDir}. */
+    private final String upstream;
+    private final Path recordDir;
+    private final Properties index = new Properties();
+    private final HttpClient upstreamClient;
+    /** Absolute links to this address in recorded text bodies are rewritten to the local server. */
+    private String recordedUpstream;
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+
+    private ReplayServer(int port, String upstream, Path recordDir) throws IOException {
+        this.upstream = upstream;
+        this.recordDir = recordDir;
+        this.recordedUpstream = upstream;
+        this.upstreamClient = upstream == null ? null : HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * @return a server with no exchanges yet, to be filled with {@link #serve}; port 0 picks a free one.
+     */
+    public static ReplayServer create(int port) throws IOException {
+        return new ReplayServer(port, null, null);
+    }
+
+    /**
+     * @return a server answering with the exchanges recorded in {@code dir}.
+     */
+    public static ReplayServer replay(Path dir, int port) throws IOException {
+        ReplayServer server = new ReplayServer(port, null, null);
+        server.load(dir);
+        return server;
+    }
+
+    /**
+     * @param upstream address of the real server, e.g. "https://satori.tcs.uj.edu.pl".
+     * @return a server forwarding to {@code upstream} and saving the exchanges in {@code dir}.
+     */
+    public static ReplayServer record(String upstream, Path dir, int port) throws IOException {
+        Files.createDirectories(dir);
+        ReplayServer server = new ReplayServer(port, stripSlash(upstream), dir);
+        server.index.setProperty("upstream", server.upstream);
+        return server;
+    }
+
+    /**
+     * Answers requests for {@code pathAndQuery} with {@code exchange}. Without a query the
+     * exchange answers every query on the path that has no exchange of its own.
+     */
+    public ReplayServer serve(String method, String pathAndQuery, Exchange exchange) {
+        exchanges.put(key(method, pathAndQuery), exchange);
+        return this;
+    }
+
+    /**
+     * Delays every response by {@code latency} plus a uniformly random part of {@code jitter}.
+     */
+    public ReplayServer latency(Duration latency, Duration jitter) {
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        return this;
+    }
+
+    /**
+     * Fails the given share of requests (0 to 1) with {@code status} instead of answering them.
+     */
+    public ReplayServer errors(double rate, int status) {
+        this.errorRate = rate;
+        this.errorStatus = status;
+        return this;
+    }
+
+    public ReplayServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * @return the address to give the platforms, e.g. "http://127.0.0.1:8081".
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return how many requests the server received, failed ones included.
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange http) throws IOException {
+        try (http) {
+            requests.incrementAndGet();
+            delay();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                http.sendResponseHeaders(errorStatus, -1);
+                return;
+            }
+
+            String pathAndQuery = http.getRequestURI().getRawPath()
+                    + (http.getRequestURI().getRawQuery() != null ? "?" + http.getRequestURI().getRawQuery() : "");
+            Exchange exchange = upstream != null
+                    ? forward(http, pathAndQuery)
+                    : lookup(http.getRequestMethod(), pathAndQuery);
+            if (exchange == null) {
+                System.err.println("ReplayServer: No recorded response for " + http.getRequestMethod() + " " + pathAndQuery);
+                byte[] message = ("No recorded response for " + pathAndQuery).getBytes(StandardCharsets.UTF_8);
+                http.sendResponseHeaders(404, message.length);
+                http.getResponseBody().write(message);
+                return;
+            }
+            respond(http, exchange);
+        }
+    }
+
+    private void delay() {
+        long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Exchange lookup(String method, String pathAndQuery) {
+        Exchange exact = exchanges.get(key(method, pathAndQuery));
+        if (exact != null) return exact;
+        int query = pathAndQuery.indexOf('?');
+        return query < 0 ? null : exchanges.get(key(method, pathAndQuery.substring(0, query)));
+    }
+
+    private void respond(HttpExchange http, Exchange exchange) throws IOException {
+        byte[] body = exchange.body;
+        for (Map.Entry<String, List<String>> header : exchange.headers.entrySet()) {
+            for (String value : header.getValue()) {
+                if (header.getKey().equalsIgnoreCase("Set-Cookie")) {
+                    // the cookie was set for the real host, over HTTPS
+                    value = value.replaceAll("(?i);\\s*(Domain=[^;]*|Secure)", "");
+                } else if (header.getKey().equalsIgnoreCase("Location") && recordedUpstream != null) {
+                    value = value.replace(recordedUpstream, baseUrl());
+                }
+                http.getResponseHeaders().add(header.getKey(), value);
+            }
+        }
+        if (recordedUpstream != null && upstream == null && isText(exchange)) {
+            body = new String(body, StandardCharsets.UTF_8).replace(recordedUpstream, baseUrl()).getBytes(StandardCharsets.UTF_8);
+        }
+        http.sendResponseHeaders(exchange.status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = http.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private Exchange forward(HttpExchange http, String pathAndQuery) throws IOException {
+        byte[] requestBody;
+        try (InputStream in = http.getRequestBody()) {
+            requestBody = in.readAllBytes();
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(upstream + pathAndQuery))
+                .timeout(Duration.ofSeconds(30))
+                .method(http.getRequestMethod(), requestBody.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(requestBody));
+        for (String name : List.of("Cookie", "Content-Type", "Accept", "If-None-Match", "If-Modified-Since")) {
+            String value = http.getRequestHeaders().getFirst(name);
+            if (value != null) request.header(name, value);
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = upstreamClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while forwarding " + pathAndQuery, e);
+        }
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : RECORDED_HEADERS) {
+            List<String> values = response.headers().allValues(name);
+            if (!values.isEmpty()) headers.put(name, values);
+        }
+        Exchange exchange = new Exchange(response.statusCode(), headers, response.body());
+        save(http.getRequestMethod(), pathAndQuery, exchange);
+        return exchange;
+    }
+
+    private synchronized void save(String method, String pathAndQuery, Exchange exchange) throws IOException {
+        String request = key(method, pathAndQuery);
+        String id = null;
+        for (String name : index.stringPropertyNames()) {
+            if (name.endsWith(".request") && request.equals(index.getProperty(name))) {
+                id = name.substring(0, name.length() - ".request".length());
+            }
+        }
+        if (id == null) {
+            id = String.format("%04d", index.stringPropertyNames().stream().filter(n -> n.endsWith(".request")).count() + 1);
+        } else {
+            String prefix = id + ".header.";
+            index.stringPropertyNames().stream().filter(n -> n.startsWith(prefix)).forEach(index::remove);
+        }
+        index.setProperty(id + ".request", request);
+        index.setProperty(id + ".status", Integer.toString(exchange.status));
+        int i = 0;
+        for (Map.Entry<String, List<String>> header : exchange.headers.entrySet()) {
+            for (String value : header.getValue()) {
+                index.setProperty(id + ".header." + i++, header.getKey() + ": " + value);
+            }
+        }
+        Files.write(recordDir.resolve(id + ".body"), exchange.body);
+        try (Writer writer = Files.newBufferedWriter(recordDir.resolve(INDEX_FILE), StandardCharsets.UTF_8)) {
+            index.store(writer, "Recorded by ReplayServer from " + upstream);
+        }
+        exchanges.put(request, exchange);
+    }
+
+    private void load(Path dir) throws IOException {
+        Properties recorded = new Properties();
+        try (Reader reader = Files.newBufferedReader(dir.resolve(INDEX_FILE), StandardCharsets.UTF_8)) {
+            recorded.load(reader);
+        }
+        this.recordedUpstream = recorded.getProperty("upstream");
+        for (String name : recorded.stringPropertyNames()) {
+            if (!name.endsWith(".request")) continue;
+            String id = name.substring(0, name.length() - ".request".length());
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = 0; recorded.containsKey(id + ".header." + i); i++) {
+                String line = recorded.getProperty(id + ".header." + i);
+                int colon = line.indexOf(':');
+                headers.computeIfAbsent(line.substring(0, colon), h -> new ArrayList<>()).add(line.substring(colon + 1).trim());
+            }
+            exchanges.put(recorded.getProperty(name), new Exchange(Integer.parseInt(recorded.getProperty(id + ".status")),
+                    headers, Files.readAllBytes(dir.resolve(id + ".body"))));
+        }
+    }
+
+    private static boolean isText(Exchange exchange) {
+        List<String> type = exchange.headers.get("Content-Type");
+        if (type == null || type.isEmpty()) return false;
+        String value = type.get(0).toLowerCase(Locale.ROOT);
+        return value.startsWith("text/") || value.contains("json") || value.contains("xml");
+    }
+
+    private static String key(String method, String pathAndQuery) {
+        return method.toUpperCase(Locale.ROOT) + " " + pathAndQuery;
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * {@code record UPSTREAM DIR [PORT]} or {@code replay DIR [PORT] [--latency=MS] [--jitter=MS] [--errors=RATE]}.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        long latency = 0;
+        long jitter = 0;
+        double errors = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--latency=")) latency = Long.parseLong(arg.substring("--latency=".length()));
+            else if (arg.startsWith("--jitter=")) jitter = Long.parseLong(arg.substring("--jitter=".length()));
+            else if (arg.startsWith("--errors=")) errors = Double.parseDouble(arg.substring("--errors=".length()));
+            else positional.add(arg);
+        }
+
+        ReplayServer server;
+        if (positional.size() >= 3 && positional.get(0).equals("record")) {
+            server = record(positional.get(1), Paths.get(positional.get(2)),
+                    positional.size() > 3 ? Integer.parseInt(positional.get(3)) : 0);
+        } else if (positional.size() >= 2 && positional.get(0).equals("replay")) {
+            server = replay(Paths.get(positional.get(1)),
+                    positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 0);
+        } else {
+            System.err.println("Usage: ReplayServer record UPSTREAM DIR [PORT]");
+            System.err.println("       ReplayServer replay DIR [PORT] [--latency=MS] [--jitter=MS] [--errors=RATE]");
+            System.exit(2);
+            return;
+        }
+        server.latency(Duration.ofMillis(latency), Duration.ofMillis(jitter)).errors(errors, 503).start();
+        System.out.println((server.upstream != null ? "Recording " + server.upstream : "Replaying") + " at " + server.baseUrl());
+    }
+}
@@ -0,0 +1,51 @@
+package po25;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of Satori pages: the contest's problems table and a task statement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SatoriParsingBenchmark {
+    private static final String BASE_URI = "https://satori.tcs.uj.edu.pl";
+
+    private String problemsHtml;
+    private Document problemsPage;
+    private Element statement;
+
+    @Setup
+    public void setup() {
+        problemsHtml = Fixtures.read("satori-problems.html");
+        problemsPage = Jsoup.parse(problemsHtml, BASE_URI);
+        statement = Jsoup.parse(Fixtures.read("satori-task.html"), BASE_URI).getElementsByClass("mainsphinx").first();
+    }
+
+    /** Rows of the problems table, as in {@code SatoriContest.loadTasks}. */
+    @Benchmark
+    public List<SatoriContest.TaskRow> taskRows() {
+        return SatoriContest.parseTaskRows(problemsPage, "5812");
+    }
+
+    /** The whole problems page, HTML parsing included. */
+    @Benchmark
+    public List<SatoriContest.TaskRow> problemsPage() {
+        return SatoriContest.parseTaskRows(Jsoup.parse(problemsHtml, BASE_URI), "5812");
+    }
+
+    /** Plain text of a statement, through {@code SatoriTask.parseTextContent}. */
+    @Benchmark
+    public String parseTextContent() {
+        return SatoriTask.parseStatement(statement);
+    }
+}
@@ -6,6 +6,7 @@ import org.openqa.selenium.chrome.ChromeOptions;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
@@ -14,20 +15,47 @@ public class Browser {
     private static boolean started = false;
     private static Process process;
     private static String pathToChrome;
+    private static int maxSessions = 2;
+    private static BrowserSessionPool pool;
 
+    /**
+     * Leases a tab from the shared session pool. Close the returned session when done.
+     */
+    static public BrowserSession lease(){
+        if(!started){
+            throw new RuntimeException("Browser is not started");
+        }
+        return pool.borrow();
+    }
+
+    /**
+     * Creates a new, unpooled driver attached to the browser. Prefer {@link #lease()}.
+     */
     static public ChromeDriver getChrome(){
         if(!started){
             throw new RuntimeException("Browser is not started");
         }
         ChromeOptions options = new ChromeOptions().setBinary(pathToChrome);
         options.setExperimentalOption("debuggerAddress", "127.0.0.1:9222");
-        return new ChromeDriver(options);
+        Metrics.Timer.Sample sample = Metrics.timer("browser.driver.create").start();
+        try {
+            return new ChromeDriver(options);
+        } finally {
+            sample.stop();
+        }
     }
 
     static public void setPathToChrome(String pathToChrome){
         Browser.pathToChrome = pathToChrome;
     }
 
+    /**
+     * Sets how many sessions may be leased at once. Takes effect on the next start().
+     */
+    static public void setMaxSessions(int maxSessions){
+        Browser.maxSessions = maxSessions;
+    }
+
     static public void start() throws IOException {
         List<String> commands = new ArrayList<>();
         commands.add(pathToChrome);
@@ -35,10 +63,15 @@ public class Browser {
         commands.add("--user-data-dir=" + System.getProperty("user.dir") + "/browser/src/main/java/po25/cash");
         ProcessBuilder build = new ProcessBuilder(commands);
         process = build.start();
+        pool = new BrowserSessionPool(Browser::getChrome, maxSessions, Duration.ofMinutes(2));
         started = true;
     }
 
     static public void stop(){
+        if(pool != null){
+            pool.close();
+            pool = null;
+        }
         process.destroy();
         started = false;
     }
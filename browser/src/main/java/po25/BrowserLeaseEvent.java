@@ -0,0 +1,34 @@
+package po25;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one {@link BrowserSession}, from the moment the pool hands it out
+ * until it is closed. The time spent waiting for a free session is a field, so leases that queue
+ * behind each other show up next to the fetches they delay.
+ */
+@Name("po25.BrowserLease")
+@Label("Browser Lease")
+@Category({"DCCP", "Browser"})
+@Description("Lease of a Chrome tab from the session pool")
+@StackTrace(false)
+final class BrowserLeaseEvent extends Event {
+    @Label("Wait Time")
+    @Description("Time spent waiting for a free session")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+
+    @Label("New Driver")
+    @Description("Whether a new ChromeDriver had to be created instead of reusing an idle one")
+    boolean newDriver;
+
+    @Label("URL Pattern")
+    @Description("Pattern of the last page open in the tab, see NetworkFetchEvent")
+    String urlPattern;
+}
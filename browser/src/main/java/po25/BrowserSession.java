@@ -0,0 +1,59 @@
+package po25;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+/**
+ * A single tab leased from {@link BrowserSessionPool}.
+ * Closing the session closes the tab and returns the driver to the pool.
+ */
+public class BrowserSession implements AutoCloseable {
+    private final BrowserSessionPool pool;
+    private final ChromeDriver driver;
+    private final String homeHandle;
+    private final String tabHandle;
+    private boolean returned = false;
+    private final Metrics.Timer.Sample held = Metrics.timer("browser.lease.held").start();
+    private final BrowserLeaseEvent event = new BrowserLeaseEvent();
+
+    BrowserSession(BrowserSessionPool pool, ChromeDriver driver, String homeHandle, String tabHandle,
+                   long waitNanos, boolean newDriver) {
+        this.pool = pool;
+        this.driver = driver;
+        this.homeHandle = homeHandle;
+        this.tabHandle = tabHandle;
+        event.begin();
+        event.waitTime = waitNanos;
+        event.newDriver = newDriver;
+    }
+
+    public ChromeDriver getDriver() {
+        return driver;
+    }
+
+    String getHomeHandle() {
+        return homeHandle;
+    }
+
+    String getTabHandle() {
+        return tabHandle;
+    }
+
+    @Override
+    public void close() {
+        if (returned) return;
+        returned = true;
+        held.stop();
+        event.end();
+        if (event.shouldCommit()) {
+            try {
+                String current = driver.getCurrentUrl();
+                event.urlPattern = current != null ? NetworkFetchEvent.urlPattern(current) : null;
+            } catch (WebDriverException e) {
+                // the tab is gone; the pool will notice too
+            }
+            event.commit();
+        }
+        pool.giveBack(this);
+    }
+}
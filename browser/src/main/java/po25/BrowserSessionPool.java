@@ -0,0 +1,193 @@
+package po25;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of ChromeDriver sessions attached to the shared Chrome process.
+ * Each lease gets its own tab; returning the lease closes the tab and keeps the
+ * driver warm for the next caller. Idle drivers are health-checked before reuse
+ * and evicted after {@code maxIdle}.
+ */
+public class BrowserSessionPool implements AutoCloseable {
+
+    private record IdleDriver(ChromeDriver driver, String homeHandle, long returnedAt) {
+    }
+
+    private final Supplier<ChromeDriver> driverFactory;
+    private final Semaphore permits;
+    private final long maxIdleNanos;
+    private final Deque<IdleDriver> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private boolean closed = false;
+
+    /**
+     * @param driverFactory creates a new driver attached to the browser.
+     * @param maxSessions   maximum number of concurrently leased sessions.
+     * @param maxIdle       how long an unused driver is kept before it is quit.
+     */
+    public BrowserSessionPool(Supplier<ChromeDriver> driverFactory, int maxSessions, Duration maxIdle) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("maxSessions must be positive");
+        }
+        this.driverFactory = driverFactory;
+        this.permits = new Semaphore(maxSessions, true);
+        this.maxIdleNanos = maxIdle.toNanos();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "browser-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, maxIdle.toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        Metrics.gauge("browser.sessions.available", permits::availablePermits);
+        Metrics.gauge("browser.sessions.idle", this::idleCount);
+    }
+
+    /**
+     * Borrows a session, waiting if all of them are in use.
+     * The returned session must be closed to give the driver back to the pool.
+     *
+     * @return a session with a fresh tab selected.
+     */
+    public BrowserSession borrow() {
+        long waitStart = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a browser session", e);
+        }
+        long waitNanos = System.nanoTime() - waitStart;
+        Metrics.timer("browser.lease.wait").record(waitNanos);
+        try {
+            IdleDriver candidate;
+            while ((candidate = pollIdle()) != null) {
+                if (isHealthy(candidate.driver())) {
+                    return openTab(candidate.driver(), candidate.homeHandle(), waitNanos, false);
+                }
+                quitQuietly(candidate.driver());
+            }
+            ChromeDriver driver = driverFactory.get();
+            return openTab(driver, null, waitNanos, true);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a fresh tab on the driver; if that fails the driver is quit, since nothing else owns it.
+     *
+     * @param homeHandle the driver's first window, or null to take the current one.
+     */
+    private BrowserSession openTab(ChromeDriver driver, String homeHandle, long waitNanos, boolean newDriver) {
+        try {
+            String home = homeHandle != null ? homeHandle : driver.getWindowHandle();
+            driver.switchTo().newWindow(WindowType.TAB);
+            return new BrowserSession(this, driver, home, driver.getWindowHandle(), waitNanos, newDriver);
+        } catch (RuntimeException e) {
+            quitQuietly(driver);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the session's tab and puts the driver back into the idle queue,
+     * or quits it if the tab cannot be cleaned up.
+     */
+    void giveBack(BrowserSession session) {
+        ChromeDriver driver = session.getDriver();
+        try {
+            boolean reusable;
+            try {
+                if (driver.getWindowHandles().contains(session.getTabHandle())) {
+                    driver.switchTo().window(session.getTabHandle());
+                    driver.close();
+                }
+                driver.switchTo().window(session.getHomeHandle());
+                reusable = true;
+            } catch (WebDriverException e) {
+                reusable = false;
+            }
+
+            synchronized (this) {
+                if (reusable && !closed) {
+                    idle.push(new IdleDriver(driver, session.getHomeHandle(), System.nanoTime()));
+                    return;
+                }
+            }
+            quitQuietly(driver);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private synchronized int idleCount() {
+        return idle.size();
+    }
+
+    private synchronized IdleDriver pollIdle() {
+        return idle.poll();
+    }
+
+    private boolean isHealthy(ChromeDriver driver) {
+        try {
+            driver.getWindowHandles();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        List<ChromeDriver> expired = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            Iterator<IdleDriver> it = idle.iterator();
+            while (it.hasNext()) {
+                IdleDriver entry = it.next();
+                if (now - entry.returnedAt() >= maxIdleNanos) {
+                    expired.add(entry.driver());
+                    it.remove();
+                }
+            }
+        }
+        expired.forEach(this::quitQuietly);
+    }
+
+    private void quitQuietly(ChromeDriver driver) {
+        try {
+            driver.quit();
+        } catch (WebDriverException ignored) {
+        }
+    }
+
+    /**
+     * Quits all idle drivers. Sessions still leased are quit when they are returned.
+     */
+    @Override
+    public void close() {
+        List<IdleDriver> drained;
+        synchronized (this) {
+            closed = true;
+            drained = new ArrayList<>(idle);
+            idle.clear();
+        }
+        evictor.shutdownNow();
+        drained.forEach(entry -> quitQuietly(entry.driver()));
+    }
+}
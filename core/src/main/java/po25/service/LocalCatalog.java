@@ -0,0 +1,218 @@
+package po25.service;
+
+import po25.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves contests, tasks and submissions from the local {@link MetadataStore} and keeps it up to date.
+ * Stored data is returned right away; once it is older than its freshness window it is refreshed from
+ * the platform on a background thread. Only data that was never stored is fetched in the foreground.
+ */
+class LocalCatalog {
+    private static final Duration CONTESTS_FRESH_FOR = Duration.ofHours(6);
+    private static final Duration TASKS_FRESH_FOR = Duration.ofDays(1);
+    private static final Duration SUBMISSIONS_FRESH_FOR = Duration.ofMinutes(5);
+
+    private interface Refresh {
+        void run() throws PlatformException, ConnectionException, LoginException;
+    }
+
+    private final MetadataStore store;
+    /** Running background refreshes by key; a refresh removes itself when it ends. */
+    private final ConcurrentMap<String, Thread> refreshes = new ConcurrentHashMap<>();
+
+    LocalCatalog(MetadataStore store) {
+        this.store = store;
+    }
+
+    List<Contest> contests(Platform platform) throws PlatformException, ConnectionException, LoginException {
+        String platformName = platform.getPlatformName();
+        List<MetadataStore.Record> stored = latestListing(store.contests(platformName));
+        if (stored.isEmpty()) {
+            return saveContests(platform, platform.getAllContests());
+        }
+        if (!stored.get(0).isFresh(CONTESTS_FRESH_FOR)) {
+            refreshContestsInBackground(platform);
+        }
+        stored.sort(Comparator.comparingInt(LocalCatalog::order));
+        List<Contest> contests = new ArrayList<>(stored.size());
+        for (MetadataStore.Record record : stored) {
+            contests.add(new StoredContest(this, platform, record, null));
+        }
+        return contests;
+    }
+
+    Optional<Contest> contest(Platform platform, String contestId) throws PlatformException, ConnectionException, LoginException {
+        Optional<MetadataStore.Record> stored = store.contest(platform.getPlatformName(), contestId);
+        if (stored.isPresent()) {
+            if (!stored.get().isFresh(CONTESTS_FRESH_FOR)) {
+                refreshContestsInBackground(platform);
+            }
+            return Optional.of(new StoredContest(this, platform, stored.get(), null));
+        }
+        // not in the stored listing yet, e.g. announced after the last refresh
+        Optional<Contest> live = platform.getContestById(contestId);
+        if (live.isEmpty()) return Optional.empty();
+        MetadataStore.Record record = StoredContest.toRecord(platform.getPlatformName(), live.get(), Integer.MAX_VALUE, System.currentTimeMillis());
+        return Optional.of(new StoredContest(this, platform, record, live.get()));
+    }
+
+    List<Task> tasks(StoredContest contest) throws PlatformException, ConnectionException, LoginException {
+        String platformName = contest.getPlatform().getPlatformName();
+        List<MetadataStore.Record> stored = latestListing(store.tasks(platformName, contest.getId()));
+        if (stored.isEmpty()) {
+            return saveTasks(contest, contest.live().getTasks());
+        }
+        if (!stored.get(0).isFresh(TASKS_FRESH_FOR)) {
+            refreshInBackground(platformName + "/" + contest.getId() + "/tasks", () -> saveTasks(contest, contest.live().getTasks()));
+        }
+        stored.sort(Comparator.comparingInt(LocalCatalog::order));
+        List<Task> tasks = new ArrayList<>(stored.size());
+        for (MetadataStore.Record record : stored) {
+            tasks.add(new StoredTask(this, contest, record, null));
+        }
+        return tasks;
+    }
+
+    /**
+     * @param task the task whose history is returned, or null for the whole contest.
+     */
+    List<Submission> submissions(StoredContest contest, StoredTask task) throws PlatformException, ConnectionException, LoginException {
+        String platformName = contest.getPlatform().getPlatformName();
+        List<MetadataStore.Record> stored = store.submissions(platformName, contest.getId(), task == null ? null : task.getId());
+        Refresh refresh = () -> saveSubmissions(contest, task == null
+                ? contest.live().getSubmissionHistory()
+                : task.live().getSubmissionHistory());
+        if (stored.isEmpty()) {
+            refresh.run();
+            stored = store.submissions(platformName, contest.getId(), task == null ? null : task.getId());
+        } else if (stored.stream().noneMatch(record -> record.isFresh(SUBMISSIONS_FRESH_FOR))) {
+            refreshInBackground(platformName + "/" + contest.getId() + "/" + (task == null ? "*" : task.getId()) + "/submissions", refresh);
+        }
+        List<Submission> submissions = new ArrayList<>(stored.size());
+        for (MetadataStore.Record record : stored) {
+            submissions.add(new StoredSubmission(record));
+        }
+        submissions.sort(Comparator.comparing(s -> s.getSubmittedAt().orElse(LocalDateTime.MIN)));
+        return submissions;
+    }
+
+    void recordSubmission(StoredContest contest, Submission submission) {
+        recordSubmission(contest.getPlatform().getPlatformName(), contest.getId(), submission);
+    }
+
+    void recordSubmission(String platformName, String contestId, Submission submission) {
+        store.putAll(List.of(StoredSubmission.toRecord(platformName, contestId, submission, System.currentTimeMillis())));
+    }
+
+    /**
+     * @return true while a background refresh started by this catalog is still running.
+     */
+    boolean isRefreshing() {
+        return refreshes.values().stream().anyMatch(Thread::isAlive);
+    }
+
+    /**
+     * Waits for running background refreshes, so a short-lived process does not exit before
+     * the store is updated for the next run.
+     */
+    void awaitRefreshes(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Thread refresh : new ArrayList<>(refreshes.values())) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) break;
+            try {
+                refresh.join(Duration.ofNanos(left));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private List<Contest> saveContests(Platform platform, List<Contest> live) {
+        long now = System.currentTimeMillis();
+        List<MetadataStore.Record> records = new ArrayList<>(live.size());
+        List<Contest> contests = new ArrayList<>(live.size());
+        for (int i = 0; i < live.size(); i++) {
+            MetadataStore.Record record = StoredContest.toRecord(platform.getPlatformName(), live.get(i), i, now);
+            records.add(record);
+            contests.add(new StoredContest(this, platform, record, live.get(i)));
+        }
+        store.putAll(records);
+        return contests;
+    }
+
+    private List<Task> saveTasks(StoredContest contest, List<Task> live) {
+        long now = System.currentTimeMillis();
+        List<MetadataStore.Record> records = new ArrayList<>(live.size());
+        List<Task> tasks = new ArrayList<>(live.size());
+        for (int i = 0; i < live.size(); i++) {
+            MetadataStore.Record record = StoredTask.toRecord(contest.getPlatform().getPlatformName(), contest.getId(), live.get(i), i, now);
+            records.add(record);
+            tasks.add(new StoredTask(this, contest, record, live.get(i)));
+        }
+        store.putAll(records);
+        return tasks;
+    }
+
+    private void saveSubmissions(StoredContest contest, List<Submission> live) {
+        long now = System.currentTimeMillis();
+        List<MetadataStore.Record> records = new ArrayList<>(live.size());
+        for (Submission submission : live) {
+            records.add(StoredSubmission.toRecord(contest.getPlatform().getPlatformName(), contest.getId(), submission, now));
+        }
+        store.putAll(records);
+    }
+
+    private void refreshContestsInBackground(Platform platform) {
+        refreshInBackground(platform.getPlatformName() + "/contests", () -> saveContests(platform, platform.getAllContests()));
+    }
+
+    private void refreshInBackground(String key, Refresh refresh) {
+        // started only once registered, so its own removal cannot run before the registration
+        Thread thread = Thread.ofVirtual().name("refresh-" + key).unstarted(() -> {
+            try {
+                refresh.run();
+            } catch (PlatformException | ConnectionException | LoginException e) {
+                System.err.println("Warning: Could not refresh local data for " + key + " (" + e.getMessage() + ")");
+            } finally {
+                refreshes.remove(key, Thread.currentThread());
+            }
+        });
+        if (refreshes.putIfAbsent(key, thread) == null) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Contests and tasks are stored as whole listings; entries missing from the newest listing
+     * (removed on the platform) keep their older timestamp and are skipped.
+     *
+     * @return the records of the newest listing.
+     */
+    private static List<MetadataStore.Record> latestListing(List<MetadataStore.Record> records) {
+        long newest = Long.MIN_VALUE;
+        for (MetadataStore.Record record : records) {
+            newest = Math.max(newest, record.fetchedAtMillis());
+        }
+        List<MetadataStore.Record> latest = new ArrayList<>();
+        for (MetadataStore.Record record : records) {
+            if (record.fetchedAtMillis() == newest) latest.add(record);
+        }
+        return latest;
+    }
+
+    private static int order(MetadataStore.Record record) {
+        try {
+            return Integer.parseInt(record.field("order").orElse(""));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
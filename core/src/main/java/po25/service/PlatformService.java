@@ -4,36 +4,68 @@ import po25.*;
 
 // import po25.SatoriPlatform;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
 
 public class PlatformService {
 
+    private static PlatformService shared;
+    private static boolean longLived;
+
+    /** Platform constructors restore and validate saved sessions over the network, so they run on first lookup only. */
+    private final Map<String, Supplier<Platform>> platformProviders;
     private final Map<String, Platform> registeredPlatforms;
+    private final LocalCatalog catalog;
 
     public PlatformService() {
+        this.platformProviders = new LinkedHashMap<>();
         this.registeredPlatforms = new HashMap<>();
-        loadAndRegisterPlatforms();
+        this.catalog = new LocalCatalog(MetadataStore.getDefault());
+        registerPlatformProviders();
     }
 
-    private void loadAndRegisterPlatforms() {
-        try {
-            Platform codeforces = new CodeforcesPlatform();
-            registeredPlatforms.put(codeforces.getPlatformName().toLowerCase(), codeforces);
-        } catch (Exception e) {
-            System.err.println("Error initializing Codeforces platform: " + e.getMessage());
+    /**
+     * Returns the service shared by all commands of this process, creating it on first use.
+     * In the daemon it stays warm between commands until {@link #resetShared()}.
+     *
+     * @return The shared PlatformService.
+     */
+    public static synchronized PlatformService getShared() {
+        if (shared == null) {
+            shared = new PlatformService();
         }
+        return shared;
+    }
+
+    /**
+     * Drops the shared service, e.g. after a login in another process changed the saved sessions.
+     * The next {@link #getShared()} creates a fresh one.
+     */
+    public static synchronized void resetShared() {
+        shared = null;
+    }
+
+    /**
+     * Marks the process as outliving its commands (the daemon), so commands no longer wait
+     * for background refreshes before returning.
+     *
+     * @param value true in a long-lived process.
+     */
+    public static void setLongLived(boolean value) {
+        longLived = value;
+    }
 
-         try {
-             Platform satori = new SatoriPlatform();
-             registeredPlatforms.put(satori.getPlatformName().toLowerCase(), satori);
-         } catch (Exception e) {
-             System.err.println("Error initializing Satori platform: " + e.getMessage());
-         }
+    /**
+     * @return true in the daemon, whose caches and statistics outlive single commands.
+     */
+    public static boolean isLongLived() {
+        return longLived;
+    }
 
+    private void registerPlatformProviders() {
+        platformProviders.put("codeforces", CodeforcesPlatform::new);
+        platformProviders.put("satori", SatoriPlatform::new);
     }
 
     /**
@@ -43,14 +75,25 @@ public class PlatformService {
      * @return The Platform implementation.
      * @throws PlatformException if the platform is not found or not registered.
      */
-    private Platform getPlatform(String platformName) throws PlatformException {
+    private synchronized Platform getPlatform(String platformName) throws PlatformException {
         if (platformName == null || platformName.trim().isEmpty()) {
             throw new PlatformException("Platform name cannot be null or empty.");
         }
-        Platform platform = registeredPlatforms.get(platformName.toLowerCase());
-        if (platform == null) {
-            throw new PlatformException("Platform '" + platformName + "' is not registered or supported. Available: " + registeredPlatforms.keySet());
+        String key = platformName.toLowerCase();
+        Platform platform = registeredPlatforms.get(key);
+        if (platform != null) {
+            return platform;
+        }
+        Supplier<Platform> provider = platformProviders.get(key);
+        if (provider == null) {
+            throw new PlatformException("Platform '" + platformName + "' is not registered or supported. Available: " + platformProviders.keySet());
         }
+        try {
+            platform = provider.get();
+        } catch (RuntimeException e) {
+            throw new PlatformException("Error initializing " + platformName + " platform: " + e.getMessage());
+        }
+        registeredPlatforms.put(key, platform);
         return platform;
     }
 
@@ -113,7 +156,7 @@ public class PlatformService {
         // if (!platform.isSessionValid()) {
         //     throw new PlatformException("Not logged into " + platformName + ". Please login first.");
         // }
-        return platform.getAllContests();
+        return catalog.contests(platform);
     }
 
     /**
@@ -126,7 +169,7 @@ public class PlatformService {
      */
     public Optional<Contest> getContestById(String platformName, String contestId) throws PlatformException, ConnectionException, LoginException {
         Platform platform = getPlatform(platformName);
-        return platform.getContestById(contestId);
+        return catalog.contest(platform, contestId);
     }
 
     /**
@@ -139,9 +182,7 @@ public class PlatformService {
      * @throws PlatformException if there's an issue communicating with the platform or the platform/contest is invalid.
      */
     public List<Task> getTasksForContest(String platformName, String contestId) throws PlatformException, ConnectionException, LoginException {
-        Platform platform = getPlatform(platformName);
-
-        Optional<Contest> contestOptional = platform.getContestById(contestId);
+        Optional<Contest> contestOptional = getContestById(platformName, contestId);
         if (contestOptional.isPresent()) {
             Contest contest = contestOptional.get();
             return contest.getTasks();
@@ -167,4 +208,113 @@ public class PlatformService {
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the submission history of a contest, or of one task in it.
+     *
+     * @param platformName The name of the platform.
+     * @param contestId    The ID of the contest.
+     * @param taskId       The ID of the task, or null for the whole contest.
+     * @return The submissions, oldest first. Empty if the contest or task is not found.
+     * @throws PlatformException if there's an issue.
+     */
+    public List<Submission> getSubmissionHistory(String platformName, String contestId, String taskId) throws PlatformException, ConnectionException, LoginException {
+        Optional<Contest> contestOptional = getContestById(platformName, contestId);
+        if (contestOptional.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (taskId == null) {
+            return contestOptional.get().getSubmissionHistory();
+        }
+        Optional<Task> taskOptional = contestOptional.get().getTaskById(taskId);
+        return taskOptional.isPresent() ? taskOptional.get().getSubmissionHistory() : Collections.emptyList();
+    }
+
+    /**
+     * Starts watching submissions of a contest until their verdicts are final; verdict changes go to the
+     * listeners of {@code watcher}, and final verdicts are also saved to the local store.
+     *
+     * @param platformName  The name of the platform.
+     * @param contestId     The ID of the contest.
+     * @param submissionIds The submissions to watch, or empty for every pending submission of the contest.
+     * @param watcher       The watcher to use, usually {@link SubmissionWatcher#getShared()}.
+     * @return The submissions now being watched.
+     */
+    public List<Submission> watchSubmissions(String platformName, String contestId, Collection<String> submissionIds,
+                                             SubmissionWatcher watcher) throws PlatformException, ConnectionException, LoginException {
+        Platform platform = getPlatform(platformName);
+        Contest contest = platform.getContestById(contestId).orElseThrow(() ->
+                new PlatformException("Contest '" + contestId + "' not found on platform '" + platformName + "'."));
+        List<Submission> history = contest.getSubmissionHistory();
+
+        List<Submission> watched = new ArrayList<>();
+        if (submissionIds.isEmpty()) {
+            // one batched refresh tells which ones are still pending
+            Map<String, Verdict> verdicts = platform.refreshVerdicts(history);
+            for (Submission submission : history) {
+                Verdict verdict = verdicts.get(submission.getSubmissionId());
+                if (verdict == null || !verdict.isTerminal()) watched.add(submission);
+            }
+        } else {
+            Map<String, Submission> byId = new HashMap<>();
+            for (Submission submission : history) {
+                byId.put(submission.getSubmissionId(), submission);
+            }
+            for (String id : submissionIds) {
+                Submission submission = byId.get(id);
+                if (submission == null) {
+                    throw new PlatformException("Submission '" + id + "' not found in contest '" + contestId + "'.");
+                }
+                watched.add(submission);
+            }
+        }
+
+        if (!watched.isEmpty()) {
+            watcher.addListener(new SubmissionWatcher.Listener() {
+                private final Set<String> left = new HashSet<>(ids(watched));
+
+                @Override
+                public void verdictChanged(Platform source, Submission submission, Verdict verdict) {
+                    if (source != platform || !verdict.isTerminal() || !left.remove(submission.getSubmissionId())) return;
+                    catalog.recordSubmission(platform.getPlatformName(), contestId, submission);
+                    if (left.isEmpty()) watcher.removeListener(this);
+                }
+
+                @Override
+                public void watchFailed(Platform source, Submission submission, Exception cause) {
+                    if (source == platform && left.remove(submission.getSubmissionId()) && left.isEmpty()) {
+                        watcher.removeListener(this);
+                    }
+                }
+            });
+            for (Submission submission : watched) {
+                watcher.watch(platform, submission);
+            }
+        }
+        return watched;
+    }
+
+    private static List<String> ids(List<Submission> submissions) {
+        List<String> ids = new ArrayList<>(submissions.size());
+        for (Submission submission : submissions) {
+            ids.add(submission.getSubmissionId());
+        }
+        return ids;
+    }
+
+    /**
+     * Contests, tasks and submissions are served from the local store and refreshed in the background
+     * when stale. A command calls this before exiting so the refreshed data is saved for the next run.
+     *
+     * @param timeout How long to wait at most.
+     */
+    public void awaitBackgroundRefresh(Duration timeout) {
+        if (longLived) {
+            return;
+        }
+        if (catalog.isRefreshing()) {
+            System.out.println("Updating local data...");
+            catalog.awaitRefreshes(timeout);
+        }
+    }
+}
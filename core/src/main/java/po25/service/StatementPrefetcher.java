@@ -0,0 +1,134 @@
+package po25.service;
+
+import po25.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads task statements in the background so that opening one does not wait for the platform.
+ * <p>
+ * Tasks wait in a single queue and at most {@link #MAX_CONCURRENT} of them are loaded at once,
+ * each on its own virtual thread; loading a statement also stores it in the
+ * {@link StatementCache}, so later processes find it there too. {@link #prioritize} moves a task
+ * to the front of the queue, for the one the user is about to open. A task is loaded at most once
+ * at a time: its callers share one future, so the prefetch and an explicit open never race on the
+ * task's fields.
+ */
+public class StatementPrefetcher {
+    /** How many statements are loaded at once, changed with -Ddccp.prefetch.concurrency. */
+    static final int MAX_CONCURRENT = Math.max(1, Integer.getInteger("dccp.prefetch.concurrency", 4));
+
+    private static StatementPrefetcher shared;
+
+    private final int maxConcurrent;
+    private final Deque<Task> queue = new ArrayDeque<>();
+    /** Queued and running tasks; a task leaves once its statement is loaded or has failed. */
+    private final Map<Task, CompletableFuture<String>> inFlight = new IdentityHashMap<>();
+    private int running;
+
+    public StatementPrefetcher() {
+        this(MAX_CONCURRENT);
+    }
+
+    public StatementPrefetcher(int maxConcurrent) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be positive");
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * @return the prefetcher shared by the GUI and the commands of this process, created on first use.
+     */
+    public static synchronized StatementPrefetcher getShared() {
+        if (shared == null) {
+            shared = new StatementPrefetcher();
+        }
+        return shared;
+    }
+
+    /**
+     * Queues the statements of the given tasks, in order, behind the ones already queued.
+     * Tasks already queued or loading keep their place.
+     *
+     * @return one future per task, completed with the statement or the failure of loading it.
+     */
+    public synchronized List<CompletableFuture<String>> prefetch(Collection<? extends Task> tasks) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            futures.add(enqueue(task, false));
+        }
+        startWorkers();
+        return futures;
+    }
+
+    /**
+     * Moves the task to the front of the queue, queueing it if needed. If the statement was loaded
+     * before, the returned future completes almost at once from the task's own cache.
+     *
+     * @return a future completed with the statement or the failure of loading it.
+     */
+    public synchronized CompletableFuture<String> prioritize(Task task) {
+        CompletableFuture<String> future = enqueue(task, true);
+        startWorkers();
+        return future;
+    }
+
+    private CompletableFuture<String> enqueue(Task task, boolean first) {
+        CompletableFuture<String> future = inFlight.get(task);
+        if (future != null) {
+            // still queued: move it forward; already running: nothing to speed up
+            if (first && queue.remove(task)) {
+                queue.addFirst(task);
+            }
+            return future;
+        }
+        future = new CompletableFuture<>();
+        inFlight.put(task, future);
+        if (first) {
+            queue.addFirst(task);
+        } else {
+            queue.addLast(task);
+        }
+        return future;
+    }
+
+    private void startWorkers() {
+        while (running < maxConcurrent && running < queue.size()) {
+            running++;
+            IoScope.startVirtual("statement-prefetch", this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Task task;
+            CompletableFuture<String> future;
+            synchronized (this) {
+                task = queue.pollFirst();
+                if (task == null) {
+                    running--;
+                    return;
+                }
+                future = inFlight.get(task);
+            }
+
+            String content = null;
+            Throwable failure = null;
+            try {
+                content = task.getContent();
+            } catch (Throwable e) {
+                // Errors too (e.g. from Selenium or jsoup): waiters must always be released
+                failure = e;
+            }
+
+            synchronized (this) {
+                inFlight.remove(task);
+            }
+            if (failure == null) {
+                future.complete(content);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+}
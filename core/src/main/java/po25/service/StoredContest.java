@@ -0,0 +1,118 @@
+package po25.service;
+
+import po25.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * A contest read from the local metadata store. Its tasks and submissions come from the store too;
+ * the live contest is only looked up on the platform when a task needs it.
+ */
+class StoredContest implements Contest {
+    private final LocalCatalog catalog;
+    private final Platform platform;
+    private final MetadataStore.Record record;
+    private Contest live;
+    private Map<String, Task> tasksById;
+
+    StoredContest(LocalCatalog catalog, Platform platform, MetadataStore.Record record, Contest live) {
+        this.catalog = catalog;
+        this.platform = platform;
+        this.record = record;
+        this.live = live;
+    }
+
+    static MetadataStore.Record toRecord(String platformName, Contest contest, int order, long fetchedAtMillis) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("title", contest.getTitle());
+        contest.getDescription().ifPresent(description -> fields.put("description", description));
+        contest.getStartTime().ifPresent(time -> fields.put("start", time.toString()));
+        contest.getEndTime().ifPresent(time -> fields.put("end", time.toString()));
+        fields.put("order", Integer.toString(order));
+        return MetadataStore.Record.contest(platformName, contest.getId(), fields, fetchedAtMillis);
+    }
+
+    Platform getPlatform() {
+        return platform;
+    }
+
+    MetadataStore.Record getRecord() {
+        return record;
+    }
+
+    /**
+     * @return the contest as the platform sees it, fetched on first use.
+     */
+    synchronized Contest live() throws PlatformException, ConnectionException, LoginException {
+        if (live == null) {
+            live = platform.getContestById(getId()).orElseThrow(() ->
+                    new PlatformException("Contest '" + getId() + "' is no longer available on " + platform.getPlatformName() + "."));
+        }
+        return live;
+    }
+
+    @Override
+    public String getId() {
+        return record.contestId();
+    }
+
+    @Override
+    public String getTitle() {
+        return record.field("title").orElse(getId());
+    }
+
+    @Override
+    public List<Task> getTasks() throws PlatformException, ConnectionException, LoginException {
+        return new ArrayList<>(tasksById().values());
+    }
+
+    @Override
+    public Collection<Task> getTaskView() throws PlatformException, ConnectionException, LoginException {
+        return Collections.unmodifiableCollection(tasksById().values());
+    }
+
+    /**
+     * @return the tasks in listing order, keyed by id; read from the catalog once per instance.
+     */
+    private synchronized Map<String, Task> tasksById() throws PlatformException, ConnectionException, LoginException {
+        if (tasksById == null) {
+            Map<String, Task> tasks = new LinkedHashMap<>();
+            for (Task task : catalog.tasks(this)) {
+                tasks.put(task.getId(), task);
+            }
+            tasksById = tasks;
+        }
+        return tasksById;
+    }
+
+    @Override
+    public Optional<String> getDescription() {
+        return record.field("description");
+    }
+
+    @Override
+    public Optional<Task> getTaskById(String taskId) throws PlatformException, ConnectionException, LoginException {
+        return Optional.ofNullable(tasksById().get(taskId));
+    }
+
+    @Override
+    public Optional<LocalDateTime> getStartTime() {
+        return record.field("start").map(LocalDateTime::parse);
+    }
+
+    @Override
+    public Optional<LocalDateTime> getEndTime() {
+        return record.field("end").map(LocalDateTime::parse);
+    }
+
+    @Override
+    public List<Submission> getSubmissionHistory() throws PlatformException, ConnectionException, LoginException {
+        return catalog.submissions(this, null);
+    }
+
+    @Override
+    public String toString() {
+        return getTitle();
+    }
+}
@@ -0,0 +1,95 @@
+package po25.service;
+
+import po25.MetadataStore;
+import po25.Submission;
+import po25.Verdict;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A submission read from the local metadata store. The verdict and resource usage are parsed
+ * once, when the record is read.
+ */
+class StoredSubmission implements Submission {
+    private final MetadataStore.Record record;
+    private final Verdict verdictType;
+    private final long timeMillis;
+    private final long memoryBytes;
+
+    StoredSubmission(MetadataStore.Record record) {
+        this.record = record;
+        this.verdictType = Verdict.parse(getVerdict());
+        this.timeMillis = parseLong(record.field("timeMillis"));
+        this.memoryBytes = parseLong(record.field("memoryBytes"));
+    }
+
+    static MetadataStore.Record toRecord(String platformName, String contestId, Submission submission, long fetchedAtMillis) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        // never getVerdict(): saving must not refresh every pending submission
+        fields.put("verdict", submission.peekVerdict());
+        submission.getExecutionTimeMillis().ifPresent(time -> fields.put("timeMillis", Long.toString(time)));
+        submission.getMemoryUsedBytes().ifPresent(memory -> fields.put("memoryBytes", Long.toString(memory)));
+        submission.getSubmittedAt().ifPresent(time -> fields.put("submittedAt", time.toString()));
+        submission.getLanguage().ifPresent(language -> fields.put("language", language));
+        return MetadataStore.Record.submission(platformName,
+                submission.getContestId().orElse(contestId), submission.getTaskId(),
+                submission.getSubmissionId(), fields, fetchedAtMillis);
+    }
+
+    @Override
+    public String getSubmissionId() {
+        return record.submissionId();
+    }
+
+    @Override
+    public String getTaskId() {
+        return record.taskId();
+    }
+
+    @Override
+    public Optional<String> getContestId() {
+        return Optional.ofNullable(record.contestId());
+    }
+
+    @Override
+    public String getVerdict() {
+        return record.field("verdict").orElse("Unknown");
+    }
+
+    @Override
+    public Verdict getVerdictType() {
+        return verdictType;
+    }
+
+    @Override
+    public OptionalLong getExecutionTimeMillis() {
+        return timeMillis >= 0 ? OptionalLong.of(timeMillis) : OptionalLong.empty();
+    }
+
+    @Override
+    public OptionalLong getMemoryUsedBytes() {
+        return memoryBytes >= 0 ? OptionalLong.of(memoryBytes) : OptionalLong.empty();
+    }
+
+    @Override
+    public Optional<LocalDateTime> getSubmittedAt() {
+        return record.field("submittedAt").map(LocalDateTime::parse);
+    }
+
+    @Override
+    public Optional<String> getLanguage() {
+        return record.field("language");
+    }
+
+    private static long parseLong(Optional<String> value) {
+        try {
+            return value.isPresent() ? Long.parseLong(value.get()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
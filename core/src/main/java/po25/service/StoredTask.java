@@ -0,0 +1,111 @@
+package po25.service;
+
+import po25.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A task read from the local metadata store. The statement and submitting go to the live task,
+ * which is looked up on first use (statements have their own {@link StatementCache}).
+ */
+class StoredTask implements Task {
+    private final LocalCatalog catalog;
+    private final StoredContest contest;
+    private final MetadataStore.Record record;
+    private Task live;
+
+    StoredTask(LocalCatalog catalog, StoredContest contest, MetadataStore.Record record, Task live) {
+        this.catalog = catalog;
+        this.contest = contest;
+        this.record = record;
+        this.live = live;
+    }
+
+    static MetadataStore.Record toRecord(String platformName, String contestId, Task task, int order, long fetchedAtMillis) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", task.getName());
+        fields.put("order", Integer.toString(order));
+        return MetadataStore.Record.task(platformName, contestId, task.getId(), fields, fetchedAtMillis);
+    }
+
+    StoredContest getContest() {
+        return contest;
+    }
+
+    synchronized Task live() throws PlatformException, ConnectionException, LoginException {
+        if (live == null) {
+            live = contest.live().getTaskById(getId()).orElseThrow(() ->
+                    new PlatformException("Task '" + getId() + "' is no longer available in contest '" + contest.getId() + "'."));
+        }
+        return live;
+    }
+
+    private synchronized Optional<Task> liveIfResolved() {
+        return Optional.ofNullable(live);
+    }
+
+    @Override
+    public String getId() {
+        return record.taskId();
+    }
+
+    @Override
+    public String getName() {
+        return record.field("name").orElse(getId());
+    }
+
+    @Override
+    public String getContent() throws PlatformException, ConnectionException, LoginException {
+        return live().getContent();
+    }
+
+    @Override
+    public Optional<String> getSampleInput() {
+        return liveIfResolved().flatMap(Task::getSampleInput);
+    }
+
+    @Override
+    public Optional<String> getSampleOutput() {
+        return liveIfResolved().flatMap(Task::getSampleOutput);
+    }
+
+    @Override
+    public Optional<String> getTimeLimit() {
+        return liveIfResolved().flatMap(Task::getTimeLimit);
+    }
+
+    @Override
+    public Optional<String> getMemoryLimit() {
+        return liveIfResolved().flatMap(Task::getMemoryLimit);
+    }
+
+    @Override
+    public Submission submit(String path) throws PlatformException, ConnectionException, LoginException {
+        Submission submission = live().submit(path);
+        catalog.recordSubmission(contest, submission);
+        return submission;
+    }
+
+    @Override
+    public List<Submission> getSubmissionHistory() throws PlatformException, ConnectionException, LoginException {
+        return catalog.submissions(contest, this);
+    }
+
+    @Override
+    public String getUnparsedContent() throws PlatformException, ConnectionException, LoginException {
+        return live().getUnparsedContent();
+    }
+
+    @Override
+    public String getCss() throws PlatformException, ConnectionException, LoginException {
+        return live().getCss();
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,227 @@
+package po25.service;
+
+import po25.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Follows pending submissions until the judge gives them a final verdict.
+ * <p>
+ * Submissions are kept in one watch set per platform, and each tick refreshes a whole set with a
+ * single {@link Platform#refreshVerdicts} call, which the platforms batch per contest. Ticks are
+ * frequent right after a submission is added and slow down as the newest pending submission ages,
+ * since a verdict that is not back within a few seconds usually means a queue. Failed ticks back
+ * off exponentially; after {@link #MAX_FAILURES} in a row the set is dropped. Verdict changes are
+ * published to {@link Listener}s on the watcher's thread.
+ */
+public class SubmissionWatcher implements AutoCloseable {
+    static final Duration MIN_DELAY = Duration.ofSeconds(2);
+    static final Duration MAX_DELAY = Duration.ofSeconds(60);
+    /** Pending submissions are polled at this fraction of their age (1/4: a 1-minute-old one every 15 s). */
+    private static final int AGE_DIVISOR = 4;
+    private static final int MAX_FAILURES = 10;
+
+    private static SubmissionWatcher shared;
+
+    /**
+     * Receives verdict changes of watched submissions.
+     */
+    public interface Listener {
+        /**
+         * Called when the verdict changes. Once it is terminal the submission is no longer watched,
+         * and its full text (e.g. "Wrong answer on test 3") is {@link Submission#getVerdict()},
+         * which needs no request at that point.
+         *
+         * @param verdict the new verdict.
+         */
+        void verdictChanged(Platform platform, Submission submission, Verdict verdict);
+
+        /**
+         * Called when a submission stops being watched because its platform kept failing.
+         */
+        default void watchFailed(Platform platform, Submission submission, Exception cause) {
+        }
+    }
+
+    private static final class Watched {
+        final Submission submission;
+        final long addedAtNanos;
+        Verdict verdict;
+
+        Watched(Submission submission, long addedAtNanos) {
+            this.submission = submission;
+            this.addedAtNanos = addedAtNanos;
+        }
+    }
+
+    private final class WatchSet {
+        final Platform platform;
+        final Map<String, Watched> pending = new LinkedHashMap<>();
+        ScheduledFuture<?> nextTick;
+        long nextTickAtNanos;
+        int failures;
+
+        WatchSet(Platform platform) {
+            this.platform = platform;
+        }
+    }
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "submission-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Platform, WatchSet> watchSets = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return the watcher shared by the GUI and the commands of this process, created on first use.
+     */
+    public static synchronized SubmissionWatcher getShared() {
+        if (shared == null) {
+            shared = new SubmissionWatcher();
+        }
+        return shared;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching a submission until its verdict is final. A submission that is already
+     * finished is reported on the next tick and dropped. Watching it again has no effect.
+     */
+    public synchronized void watch(Platform platform, Submission submission) {
+        WatchSet set = watchSets.computeIfAbsent(platform, WatchSet::new);
+        if (set.pending.containsKey(submission.getSubmissionId())) return;
+        set.pending.put(submission.getSubmissionId(), new Watched(submission, System.nanoTime()));
+        // a fresh submission is polled soon, even if the set was slowed down by older ones
+        long dueNanos = System.nanoTime() + MIN_DELAY.toNanos();
+        if (set.nextTick == null || set.nextTickAtNanos > dueNanos) {
+            schedule(set, MIN_DELAY);
+        }
+    }
+
+    /**
+     * @return true while any submission of the platform is still watched.
+     */
+    public synchronized boolean isWatching(Platform platform) {
+        WatchSet set = watchSets.get(platform);
+        return set != null && !set.pending.isEmpty();
+    }
+
+    /**
+     * @return true while the submission is still watched.
+     */
+    public synchronized boolean isWatching(Platform platform, String submissionId) {
+        WatchSet set = watchSets.get(platform);
+        return set != null && set.pending.containsKey(submissionId);
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void schedule(WatchSet set, Duration delay) {
+        if (set.nextTick != null) {
+            set.nextTick.cancel(false);
+        }
+        set.nextTickAtNanos = System.nanoTime() + delay.toNanos();
+        set.nextTick = ticker.schedule(() -> tick(set), delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void tick(WatchSet set) {
+        List<Watched> batch;
+        synchronized (this) {
+            set.nextTick = null;
+            batch = new ArrayList<>(set.pending.values());
+        }
+        if (batch.isEmpty()) return;
+
+        List<Submission> submissions = new ArrayList<>(batch.size());
+        for (Watched watched : batch) {
+            submissions.add(watched.submission);
+        }
+        Map<String, Verdict> verdicts;
+        try {
+            verdicts = set.platform.refreshVerdicts(submissions);
+        } catch (PlatformException | LoginException | ConnectionException | RuntimeException e) {
+            failed(set, batch, e);
+            return;
+        }
+
+        synchronized (this) {
+            set.failures = 0;
+            for (Watched watched : batch) {
+                Verdict verdict = verdicts.getOrDefault(watched.submission.getSubmissionId(), Verdict.UNKNOWN);
+                if (verdict.isTerminal()) {
+                    set.pending.remove(watched.submission.getSubmissionId());
+                }
+                if (verdict.isTerminal() || verdict != watched.verdict) {
+                    watched.verdict = verdict;
+                    publish(set.platform, watched.submission, verdict);
+                }
+            }
+            rescheduleAfterTick(set);
+        }
+    }
+
+    private void failed(WatchSet set, List<Watched> batch, Exception cause) {
+        synchronized (this) {
+            set.failures++;
+            if (set.failures < MAX_FAILURES) {
+                long backoff = Math.min(MAX_DELAY.toMillis(), MIN_DELAY.toMillis() << Math.min(set.failures, 16));
+                schedule(set, Duration.ofMillis(backoff));
+                return;
+            }
+            System.err.println("Warning: Stopped watching " + set.platform.getPlatformName()
+                    + " submissions after " + set.failures + " failed refreshes (" + cause.getMessage() + ")");
+            set.failures = 0;
+            for (Watched watched : batch) {
+                set.pending.remove(watched.submission.getSubmissionId());
+            }
+            rescheduleAfterTick(set);
+        }
+        for (Watched watched : batch) {
+            for (Listener listener : listeners) {
+                listener.watchFailed(set.platform, watched.submission, cause);
+            }
+        }
+    }
+
+    /**
+     * Schedules the next tick from the age of the newest pending submission, unless a
+     * submission added during the tick already scheduled an earlier one.
+     */
+    private void rescheduleAfterTick(WatchSet set) {
+        if (set.pending.isEmpty()) {
+            watchSets.remove(set.platform);
+            return;
+        }
+        if (set.nextTick != null) return;
+        long newest = Long.MIN_VALUE;
+        for (Watched watched : set.pending.values()) {
+            newest = Math.max(newest, watched.addedAtNanos);
+        }
+        long delay = (System.nanoTime() - newest) / AGE_DIVISOR;
+        schedule(set, Duration.ofNanos(Math.max(MIN_DELAY.toNanos(), Math.min(MAX_DELAY.toNanos(), delay))));
+    }
+
+    private void publish(Platform platform, Submission submission, Verdict verdict) {
+        for (Listener listener : listeners) {
+            try {
+                listener.verdictChanged(platform, submission, verdict);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Submission listener failed (" + e.getMessage() + ")");
+            }
+        }
+    }
+}
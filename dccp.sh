@@ -15,4 +15,45 @@ if [ ! -f "$JAR_PATH" ]; then
   exit 1
 fi
 
+# A running 'dccp daemon' answers on this socket; talking to it with nc skips JVM startup entirely.
+# login needs the terminal, daemon manages the daemon and watch would hold the daemon (which serves
+# one connection at a time) until every verdict is final, so these always run in a fresh JVM.
+# The socket is found like AbstractPlatform.getConfigDirectory() does: -Ddccp.home, which can only
+# reach java through JAVA_TOOL_OPTIONS or JDK_JAVA_OPTIONS (the later one wins), else ~/.dccp.
+DCCP_HOME="$HOME/.dccp"
+set -f
+for OPT in $JAVA_TOOL_OPTIONS $JDK_JAVA_OPTIONS; do
+  case "$OPT" in
+    -Ddccp.home=?*) DCCP_HOME="${OPT#-Ddccp.home=}" ;;
+  esac
+done
+set +f
+SOCKET_PATH="$DCCP_HOME/daemon/daemon.sock"
+
+if [ -S "$SOCKET_PATH" ] && [ -z "$DCCP_NO_DAEMON" ] && command -v nc >/dev/null 2>&1; then
+  case "$1" in
+    ""|login|daemon|watch) ;;
+    *)
+      # Only a request the daemon never acknowledged may run locally: after the ack the command
+      # may already have had effects (e.g. a submission), so it must not run a second time.
+      ACKED=""
+      EXIT_CODE=""
+      while IFS= read -r LINE || [ -n "$LINE" ]; do
+        case "$LINE" in
+          "#dccp-ack") ACKED=1 ;;
+          "#dccp-exit:"*) EXIT_CODE="${LINE#"#dccp-exit:"}" ;;
+          *) printf '%s\n' "$LINE" ;;
+        esac
+      done < <({ printf 'DCCP/2\n'; printf '%s\n' "$@"; printf '#dccp-end\n'; } | nc -U "$SOCKET_PATH" 2>/dev/null)
+      if [ -n "$EXIT_CODE" ]; then
+        exit "$EXIT_CODE"
+      fi
+      if [ -n "$ACKED" ]; then
+        echo "Error: The dccp daemon closed the connection before the command finished." >&2
+        exit 1
+      fi
+      ;;
+  esac
+fi
+
 java -jar "$JAR_PATH" "$@"
\ No newline at end of file
@@ -5,27 +5,39 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Optional;
 
 public abstract class AbstractPlatform implements Platform {
 
+    /**
+     * What is known about the saved session. UNKNOWN until the server is asked or a real request
+     * tells; VALID answers are trusted for {@link #SESSION_VALIDATION_TTL}, INVALID ones until the next login.
+     */
+    private enum SessionState { UNKNOWN, VALID, INVALID }
+
+    /** How long a successful validation (or authenticated request) is trusted without asking the server again. */
+    private static final Duration SESSION_VALIDATION_TTL = Duration.ofMinutes(10);
+
     protected final String baseApiUrl;
     protected Optional<String> sessionToken = Optional.empty();
 
     private final Path sessionFilePath;
+    private SessionState sessionState = SessionState.UNKNOWN;
+    private long sessionConfirmedAtMillis;
 
     private static final String APP_CONFIG_DIR_NAME = ".dccp";
 
     /**
-     * Initializes the platform, sets up the configuration directory, and attempts
-     * to load and validate an existing session from a local file.
+     * Initializes the platform, sets up the configuration directory, and loads an existing
+     * session from a local file. The session is validated lazily, by the first {@link #isSessionValid()}.
      *
      * @param platformSpecificBaseUrl The base URL for the platform's API.
      */
     public AbstractPlatform(String platformSpecificBaseUrl) {
         this.baseApiUrl = platformSpecificBaseUrl;
 
-        Path configDir = Paths.get(System.getProperty("user.home"), APP_CONFIG_DIR_NAME);
+        Path configDir = getConfigDirectory();
         try {
             Files.createDirectories(configDir);
         } catch (IOException e) {
@@ -36,6 +48,20 @@ public abstract class AbstractPlatform implements Platform {
         initializeSessionFromFile();
     }
 
+    /**
+     * Returns the directory holding session files and caches of the client: {@code ~/.dccp}, or the
+     * directory given with -Ddccp.home, e.g. to keep the sessions and caches of a test run apart.
+     *
+     * @return path to the configuration directory; it may not exist yet.
+     */
+    public static Path getConfigDirectory() {
+        String home = System.getProperty("dccp.home");
+        if (home != null && !home.isBlank()) {
+            return Paths.get(home);
+        }
+        return Paths.get(System.getProperty("user.home"), APP_CONFIG_DIR_NAME);
+    }
+
     /**
      * Performs the platform-specific login operation.
      * Implementations should clear the password array after use.
@@ -57,8 +83,23 @@ public abstract class AbstractPlatform implements Platform {
     protected abstract boolean validateTokenWithServer(String token) throws ConnectionException;
 
     /**
-     * Attempts to load a session token from the local file and validate it with the server.
-     * If the token is invalid or the file is corrupted, the session state is cleared.
+     * Called whenever the session token is set or cleared, so the platform can seed or clear
+     * the session cookie in the {@link HttpTransport}. May run from this class's constructor,
+     * before the subclass's fields are initialized.
+     *
+     * @param token the new token, or empty after logout or invalidation.
+     */
+    protected void onSessionTokenChanged(Optional<String> token) {
+    }
+
+    private void setSessionToken(Optional<String> token) {
+        this.sessionToken = token;
+        onSessionTokenChanged(token);
+    }
+
+    /**
+     * Attempts to load a session token from the local file. Its validity stays UNKNOWN until needed.
+     * If the file is corrupted, the session state is cleared.
      */
     private void initializeSessionFromFile() {
         if (!Files.exists(sessionFilePath)) {
@@ -74,19 +115,11 @@ public abstract class AbstractPlatform implements Platform {
                 return;
             }
 
-            if (validateTokenWithServer(tokenFromFile)) {
-                this.sessionToken = Optional.of(tokenFromFile);
-//                System.out.println(getPlatformName() + ": Session restored and validated successfully.");
-            } else {
-                System.err.println(getPlatformName() + ": Existing session token is invalid. Please log in again.");
-                deleteSessionFile();
-            }
+            setSessionToken(Optional.of(tokenFromFile));
+            this.sessionState = SessionState.UNKNOWN;
         } catch (IOException e) {
             System.err.println(getPlatformName() + ": Failed to load session token from file. Reason: " + e.getMessage());
             clearSessionStateAndFile();
-        } catch (ConnectionException e) {
-            System.err.println(e.getMessage());
-            clearSessionStateAndFile();
         } catch (PlatformException e) {
             System.err.println(getPlatformName() + ": Failed to validate session token or delete session file. Reason: " + e.getMessage());
             clearSessionStateAndFile();
@@ -102,8 +135,12 @@ public abstract class AbstractPlatform implements Platform {
             throw new LoginException("Login or password is incorrect.");
         }
 
-        saveSessionTokenToFile(newToken);
-        this.sessionToken = Optional.of(newToken);
+        synchronized (this) {
+            // under the lock, so a rejection of the old token cannot delete the new file in between
+            saveSessionTokenToFile(newToken);
+            setSessionToken(Optional.of(newToken));
+            markSessionValid();
+        }
         System.out.println(getPlatformName() + ": Successfully logged in and session saved.");
     }
 
@@ -124,16 +161,71 @@ public abstract class AbstractPlatform implements Platform {
     }
 
     /**
-     * Checks if the current user session is still active/valid by contacting the server.
+     * Checks if the current user session is still active/valid. The server is only contacted
+     * when the state is UNKNOWN or the last confirmation is older than the validation TTL;
+     * concurrent callers wait for that one check instead of each making their own.
      *
-     * @return true if the session is valid, false otherwise (including errors during validation).
+     * @return true if the session is valid, false otherwise.
      */
     @Override
-    public boolean isSessionValid() throws ConnectionException {
-        if (sessionToken.isEmpty()) {
+    public synchronized boolean isSessionValid() throws ConnectionException {
+        if (sessionToken.isEmpty() || sessionState == SessionState.INVALID) {
             return false;
         }
-        return validateTokenWithServer(sessionToken.get());
+        if (sessionState == SessionState.VALID
+                && System.currentTimeMillis() - sessionConfirmedAtMillis < SESSION_VALIDATION_TTL.toMillis()) {
+            return true;
+        }
+        String token = sessionToken.get();
+        if (validateTokenWithServer(token)) {
+            markSessionValid();
+            return true;
+        }
+        System.err.println(getPlatformName() + ": Existing session token is invalid. Please log in again.");
+        invalidateSession(token);
+        return false;
+    }
+
+    /**
+     * Records that the server just accepted the session, e.g. an authenticated request succeeded,
+     * which restarts the validation TTL.
+     */
+    protected synchronized void markSessionValid() {
+        if (sessionToken.isPresent()) {
+            sessionState = SessionState.VALID;
+            sessionConfirmedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records that the server accepted the given token. Does nothing if the user has logged in
+     * again since the request carrying it was sent.
+     */
+    protected synchronized void markSessionValid(String token) {
+        if (sessionToken.isPresent() && sessionToken.get().equals(token)) {
+            markSessionValid();
+        }
+    }
+
+    /**
+     * Records that the server rejected the session (a redirect to the login page or a 401 on a real
+     * request). The saved token is dropped, so the user has to log in again; but only if it is
+     * still the token the rejected request carried, so a request with an old cookie that was still
+     * in flight during a new login does not wipe the new session.
+     *
+     * @param token the token the rejected request was sent with.
+     */
+    protected synchronized void invalidateSession(String token) {
+        if (sessionToken.isPresent() && sessionToken.get().equals(token)) {
+            clearSessionStateAndFile();
+        }
+    }
+
+    /**
+     * @return the token requests are sent with right now, empty if there is none.
+     */
+    protected synchronized Optional<String> currentSessionToken() {
+        return sessionToken;
     }
 
     /**
@@ -171,8 +263,9 @@ public abstract class AbstractPlatform implements Platform {
     /**
      * Clears the in-memory session token and attempts to delete the session file from disk.
      */
-    private void clearSessionStateAndFile() {
-        this.sessionToken = Optional.empty();
+    private synchronized void clearSessionStateAndFile() {
+        setSessionToken(Optional.empty());
+        this.sessionState = SessionState.INVALID;
         try {
             if (Files.exists(sessionFilePath)) {
                 deleteSessionFile();
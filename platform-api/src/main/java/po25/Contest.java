@@ -1,5 +1,7 @@
 package po25;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -30,6 +32,16 @@ public interface Contest {
      */
     List<Task> getTasks() throws PlatformException, ConnectionException, LoginException;
 
+    /**
+     * Returns the tasks of this contest as an unmodifiable view, without copying them.
+     * Use it for read-only iteration; call {@link #getTasks()} for a list that can be sorted or changed.
+     *
+     * @return unmodifiable collection of Task objects.
+     */
+    default Collection<Task> getTaskView() throws PlatformException, ConnectionException, LoginException {
+        return Collections.unmodifiableList(getTasks());
+    }
+
     /**
      * Returns the description of the contest, if available.
      *
@@ -39,6 +51,7 @@ public interface Contest {
 
     /**
      * Searches for and returns a task based on its identifier.
+     * Implementations look the task up by key instead of scanning the task list.
      *
      * @param taskId task identifier.
      * @return Optional containing the Task object if a task with the given ID exists, otherwise an empty Optional.
@@ -0,0 +1,84 @@
+package po25;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * A directory of {@link Properties} files used as an on-disk cache. Each entry is stored in
+ * its own file named by the SHA-256 of its key, and is replaced atomically (written to a
+ * temporary file, then moved over the old one), so concurrent processes never see half an entry.
+ */
+public class DiskCache {
+
+    private final Path directory;
+
+    public DiskCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the entry stored for {@code key}.
+     *
+     * @return the entry, or an empty Optional if there is none.
+     * @throws IOException if the entry exists but cannot be read.
+     */
+    public Optional<Properties> read(String key) throws IOException {
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        return Optional.of(props);
+    }
+
+    /**
+     * Stores {@code props} as the entry for {@code key}, replacing the previous one atomically.
+     *
+     * @param comment written at the top of the file, to tell entries apart when browsing the directory.
+     */
+    public void write(String key, Properties props, String comment) throws IOException {
+        Path file = fileFor(key);
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                props.store(writer, comment);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Removes the entry stored for {@code key}, if any.
+     */
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(fileFor(key));
+    }
+
+    /**
+     * @return the file holding the entry for {@code key}, whether it exists or not.
+     */
+    public Path fileFor(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + ".properties");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package po25;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP client shared by all platforms. One {@link HttpClient} keeps connections alive between
+ * requests (and multiplexes them over HTTP/2 where the server supports it), asks for compressed
+ * bodies and keeps cookies in a single store, which platforms seed with their session tokens.
+ * Responses are returned as bytes; platforms parse them with Jsoup or org.json themselves.
+ */
+public final class HttpTransport {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final String USER_AGENT = "Mozilla/5.0";
+
+    private static final HttpTransport DEFAULT = new HttpTransport();
+
+    private final CookieManager cookies = new CookieManager();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .cookieHandler(cookies)
+            .build();
+
+    /**
+     * Thrown for responses with a status of 400 or more, unless the request ignores HTTP errors.
+     */
+    public static class StatusException extends IOException {
+        private final int statusCode;
+        private final String url;
+
+        public StatusException(int statusCode, String url) {
+            super("HTTP error " + statusCode + " fetching " + url);
+            this.statusCode = statusCode;
+            this.url = url;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+    }
+
+    /**
+     * A fully read response. {@link #uri()} is the final URI, after redirects.
+     */
+    public static final class Response {
+        private final int statusCode;
+        private final URI uri;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        Response(int statusCode, URI uri, HttpHeaders headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.uri = uri;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+
+        public URI uri() {
+            return uri;
+        }
+
+        /**
+         * @return the first value of the header, or null if it is absent.
+         */
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        public byte[] bodyBytes() {
+            return body;
+        }
+
+        /**
+         * @return the body decoded with the charset from Content-Type (UTF-8 if there is none).
+         */
+        public String body() {
+            return new String(body, charset());
+        }
+
+        private Charset charset() {
+            String contentType = header("Content-Type");
+            if (contentType != null) {
+                for (String parameter : contentType.split(";")) {
+                    String trimmed = parameter.trim();
+                    if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                        try {
+                            return Charset.forName(trimmed.substring(8).replace("\"", ""));
+                        } catch (IllegalArgumentException ignored) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * A request being built, in the style of Jsoup's {@code Connection}.
+     */
+    public final class Request {
+        private final String url;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private final List<String[]> formFields = new ArrayList<>();
+        private final List<FilePart> files = new ArrayList<>();
+        private Duration timeout = DEFAULT_TIMEOUT;
+        private boolean ignoreHttpErrors;
+
+        private Request(String url) {
+            this.url = url;
+        }
+
+        public Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public Request timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Returns 4xx/5xx responses instead of throwing a {@link StatusException}.
+         */
+        public Request ignoreHttpErrors() {
+            this.ignoreHttpErrors = true;
+            return this;
+        }
+
+        /**
+         * Adds a form field; the body is url-encoded unless a file is added too.
+         */
+        public Request data(String name, String value) {
+            formFields.add(new String[]{name, value});
+            return this;
+        }
+
+        /**
+         * Adds a file, which makes the body multipart/form-data.
+         */
+        public Request file(String name, String fileName, byte[] content) {
+            files.add(new FilePart(name, fileName, content));
+            return this;
+        }
+
+        public Response get() throws IOException {
+            return send(builder().GET().build());
+        }
+
+        /**
+         * Sends a GET and returns the decoded body as a stream instead of reading it into memory,
+         * for large responses that are parsed incrementally. The caller must close the stream.
+         */
+        public InputStream stream() throws IOException {
+            NetworkFetchEvent event = NetworkFetchEvent.begin("GET", url, true);
+            Metrics.Timer.Sample sample = timer().start();
+            HttpResponse<InputStream> response = null;
+            try {
+                response = exchange(builder().GET().build());
+                if (response.statusCode() >= 400 && !ignoreHttpErrors) {
+                    throw new StatusException(response.statusCode(), url);
+                }
+                return new RecordingStream(decode(response), event, response.statusCode());
+            } catch (IOException | RuntimeException e) {
+                // nobody else gets the body to close, e.g. when decode rejects a bad gzip header
+                if (response != null) closeQuietly(response.body(), e);
+                event.finish(response != null ? response.statusCode() : 0, 0);
+                throw e;
+            } finally {
+                sample.stop();
+            }
+        }
+
+        public Response post() throws IOException {
+            HttpRequest.Builder builder = builder();
+            if (files.isEmpty()) {
+                builder.header("Content-Type", "application/x-www-form-urlencoded");
+                builder.POST(HttpRequest.BodyPublishers.ofString(urlEncodedForm(), StandardCharsets.UTF_8));
+            } else {
+                String boundary = "----dccp" + UUID.randomUUID().toString().replace("-", "");
+                builder.header("Content-Type", "multipart/form-data; boundary=" + boundary);
+                builder.POST(HttpRequest.BodyPublishers.ofByteArray(multipartBody(boundary)));
+            }
+            return send(builder.build());
+        }
+
+        private HttpRequest.Builder builder() throws IOException {
+            HttpRequest.Builder builder;
+            try {
+                builder = HttpRequest.newBuilder(URI.create(url));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed URL: " + url, e);
+            }
+            builder.timeout(timeout)
+                    .header("User-Agent", USER_AGENT)
+                    .header("Accept-Encoding", "gzip, deflate");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                builder.setHeader(header.getKey(), header.getValue());
+            }
+            return builder;
+        }
+
+        /**
+         * @return the timer of requests to this request's host, "http.&lt;host&gt;".
+         */
+        private Metrics.Timer timer() {
+            if (!Metrics.ENABLED) return Metrics.timer("");
+            String host = URI.create(url).getHost();
+            return Metrics.timer("http." + (host != null ? host : "unknown"));
+        }
+
+        private HttpResponse<InputStream> exchange(HttpRequest request) throws IOException {
+            try {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                if (response.statusCode() >= 400) Metrics.counter("http.errors").increment();
+                return response;
+            } catch (IOException e) {
+                Metrics.counter("http.errors").increment();
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while fetching " + url);
+            }
+        }
+
+        private Response send(HttpRequest request) throws IOException {
+            NetworkFetchEvent event = NetworkFetchEvent.begin(request.method(), url, false);
+            Metrics.Timer.Sample sample = timer().start();
+            HttpResponse<InputStream> response = null;
+            byte[] body = null;
+            try {
+                response = exchange(request);
+                // the raw body is closed too in case decode throws before wrapping it
+                try (InputStream raw = response.body(); InputStream in = decode(response)) {
+                    body = in.readAllBytes();
+                }
+            } finally {
+                event.finish(response != null ? response.statusCode() : 0, body != null ? body.length : 0);
+                sample.stop();
+            }
+            if (response.statusCode() >= 400 && !ignoreHttpErrors) {
+                throw new StatusException(response.statusCode(), url);
+            }
+            return new Response(response.statusCode(), response.uri(), response.headers(), body);
+        }
+
+        private String urlEncodedForm() {
+            StringJoiner form = new StringJoiner("&");
+            for (String[] field : formFields) {
+                form.add(URLEncoder.encode(field[0], StandardCharsets.UTF_8) + "=" + URLEncoder.encode(field[1], StandardCharsets.UTF_8));
+            }
+            return form.toString();
+        }
+
+        private byte[] multipartBody(String boundary) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            for (String[] field : formFields) {
+                write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field[0] + "\"\r\n\r\n" + field[1] + "\r\n");
+            }
+            for (FilePart file : files) {
+                write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + file.name
+                        + "\"; filename=\"" + file.fileName.replace("\"", "") + "\"\r\nContent-Type: application/octet-stream\r\n\r\n");
+                body.writeBytes(file.content);
+                write(body, "\r\n");
+            }
+            write(body, "--" + boundary + "--\r\n");
+            return body.toByteArray();
+        }
+    }
+
+    /**
+     * A streamed body that counts what the caller reads and ends the fetch event on close.
+     */
+    private static final class RecordingStream extends FilterInputStream {
+        private final NetworkFetchEvent event;
+        private final int status;
+        private long bytes;
+        private boolean closed;
+
+        RecordingStream(InputStream in, NetworkFetchEvent event, int status) {
+            super(in);
+            this.event = event;
+            this.status = status;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) bytes++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) bytes += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                event.finish(status, bytes);
+            }
+            super.close();
+        }
+    }
+
+    private record FilePart(String name, String fileName, byte[] content) {
+    }
+
+    /**
+     * @return the transport shared by all platforms of this process.
+     */
+    public static HttpTransport getDefault() {
+        return DEFAULT;
+    }
+
+    public Request request(String url) {
+        return new Request(url);
+    }
+
+    /**
+     * Puts a cookie into the shared store, e.g. a session token restored from disk.
+     *
+     * @param baseUrl the site the cookie belongs to; it is sent with every request to that host.
+     */
+    public void setCookie(String baseUrl, String name, String value) {
+        URI uri = URI.create(baseUrl);
+        removeCookie(baseUrl, name);
+        HttpCookie cookie = new HttpCookie(name, value);
+        cookie.setPath("/");
+        cookie.setDomain(uri.getHost());
+        cookie.setVersion(0);
+        cookies.getCookieStore().add(uri, cookie);
+    }
+
+    /**
+     * @return the value of a cookie the site has set, e.g. the session token after logging in.
+     */
+    public Optional<String> getCookie(String baseUrl, String name) {
+        for (HttpCookie cookie : cookies.getCookieStore().get(URI.create(baseUrl))) {
+            if (cookie.getName().equals(name)) {
+                return Optional.of(cookie.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void removeCookie(String baseUrl, String name) {
+        URI uri = URI.create(baseUrl);
+        for (HttpCookie cookie : cookies.getCookieStore().get(uri)) {
+            if (cookie.getName().equals(name)) {
+                cookies.getCookieStore().remove(uri, cookie);
+            }
+        }
+    }
+
+    /**
+     * Undoes Content-Encoding. Brotli is not requested: the JDK has no decoder for it.
+     */
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(response.body());
+            case "deflate" -> new InflaterInputStream(response.body());
+            case "identity", "" -> response.body();
+            default -> {
+                response.body().close();
+                throw new IOException("Unsupported Content-Encoding: " + encoding);
+            }
+        };
+    }
+
+    private static void closeQuietly(InputStream in, Exception failure) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,162 @@
+package po25;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs blocking platform I/O (Jsoup, HTTP) on virtual threads with structured-concurrency semantics.
+ * Every task forked in a scope belongs to it: the first failure cancels all siblings and is the
+ * only one reported from {@link #join()}, and {@link #close()} does not return before every task
+ * has finished. Thousands of requests can be in flight without thousands of OS threads; limits on
+ * how many hit a single server belong to the caller (e.g. a per-host semaphore).
+ *
+ * <pre>
+ * try (IoScope scope = new IoScope("satori-submissions")) {
+ *     for (Task t : tasks) scope.fork(() -> { t.getSubmissionHistory(); return null; });
+ *     scope.join();
+ * }
+ * </pre>
+ */
+public final class IoScope implements AutoCloseable {
+
+    /**
+     * A unit of work forked into the scope.
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final List<Future<?>> futures = new ArrayList<>();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    /**
+     * @param name prefix of the names of the scope's virtual threads.
+     */
+    public IoScope(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    /**
+     * Starts {@code call} on a new virtual thread.
+     *
+     * @return a future for the result; it is cancelled if a sibling fails.
+     */
+    public synchronized <T> Future<T> fork(Call<T> call) {
+        Future<T> future = executor.submit(() -> {
+            try {
+                return call.call();
+            } catch (Exception | Error e) {
+                fail(e);
+                throw e;
+            }
+        });
+        futures.add(future);
+        if (firstFailure.get() != null) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for all forked tasks.
+     *
+     * @throws PlatformException   if a task failed with it, failed with an unexpected exception or the wait was interrupted.
+     * @throws ConnectionException if a task failed with it or with an IOException.
+     * @throws LoginException      if a task failed with it.
+     */
+    public void join() throws PlatformException, ConnectionException, LoginException {
+        await(-1);
+    }
+
+    /**
+     * Waits for all forked tasks, cancelling the unfinished ones once the timeout expires.
+     *
+     * @throws PlatformException if the timeout expired, or as in {@link #join()}.
+     */
+    public void join(Duration timeout) throws PlatformException, ConnectionException, LoginException {
+        await(System.nanoTime() + timeout.toNanos());
+    }
+
+    private void await(long deadlineNanos) throws PlatformException, ConnectionException, LoginException {
+        List<Future<?>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(futures);
+        }
+        try {
+            for (Future<?> future : snapshot) {
+                try {
+                    if (deadlineNanos < 0) {
+                        future.get();
+                    } else {
+                        future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    }
+                } catch (CancellationException | ExecutionException ignored) {
+                    // the cause, if any, is kept in firstFailure
+                }
+            }
+        } catch (TimeoutException e) {
+            cancelAll();
+            throw new PlatformException("Timed out waiting for " + snapshot.size() + " I/O tasks");
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new PlatformException("Interrupted while waiting for I/O tasks", e);
+        }
+        rethrowFailure();
+    }
+
+    private void fail(Throwable failure) {
+        if (firstFailure.compareAndSet(null, failure)) {
+            cancelAll();
+        }
+    }
+
+    private synchronized void cancelAll() {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private void rethrowFailure() throws PlatformException, ConnectionException, LoginException {
+        Throwable failure = firstFailure.get();
+        if (failure == null) return;
+        if (failure instanceof PlatformException e) throw e;
+        if (failure instanceof ConnectionException e) throw e;
+        if (failure instanceof LoginException e) throw e;
+        if (failure instanceof IOException e) throw new ConnectionException(e.getMessage(), e);
+        if (failure instanceof Error e) throw e;
+        throw new PlatformException(failure.getMessage(), failure);
+    }
+
+    /**
+     * Cancels unfinished tasks and waits until all of them have terminated.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            for (Future<?> future : futures) {
+                if (!future.isDone()) future.cancel(true);
+            }
+        }
+        executor.close();
+    }
+
+    /**
+     * Starts a detached virtual thread, for fire-and-forget background work such as UI loads.
+     */
+    public static Thread startVirtual(String name, Runnable task) {
+        return Thread.ofVirtual().name(name).start(task);
+    }
+}
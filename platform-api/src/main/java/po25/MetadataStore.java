@@ -0,0 +1,457 @@
+package po25;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Persistent store of contest, task and submission metadata, shared by all processes of the client.
+ * Records are appended to {@code metadata.log} under {@code ~/.dccp/store}; a newer record for the
+ * same key supersedes the older one. {@code metadata.idx} maps every key to the offset of its latest
+ * record, so opening the store only replays the part of the log written after the index was saved.
+ * Writers serialize on a lock held on {@code metadata.lock}, not on the log itself: compaction
+ * replaces the log file, and a lock on the replaced file would no longer exclude anyone.
+ * Like {@link StatementCache} the store is only an optimization: I/O failures are reported and the
+ * affected records are treated as missing.
+ */
+public class MetadataStore {
+
+    public enum Kind { CONTEST, TASK, SUBMISSION }
+
+    /**
+     * One stored entity. Ids that do not apply to the kind (e.g. the task id of a contest) are null.
+     *
+     * @param fields          entity attributes, by name.
+     * @param fetchedAtMillis when the entity was last read from the platform.
+     */
+    public record Record(Kind kind, String platform, String contestId, String taskId, String submissionId,
+                         Map<String, String> fields, long fetchedAtMillis) {
+
+        public static Record contest(String platform, String contestId, Map<String, String> fields, long fetchedAtMillis) {
+            return new Record(Kind.CONTEST, platform, contestId, null, null, fields, fetchedAtMillis);
+        }
+
+        public static Record task(String platform, String contestId, String taskId, Map<String, String> fields,
+                                  long fetchedAtMillis) {
+            return new Record(Kind.TASK, platform, contestId, taskId, null, fields, fetchedAtMillis);
+        }
+
+        public static Record submission(String platform, String contestId, String taskId, String submissionId,
+                                        Map<String, String> fields, long fetchedAtMillis) {
+            return new Record(Kind.SUBMISSION, platform, contestId, taskId, submissionId, fields, fetchedAtMillis);
+        }
+
+        public Optional<String> field(String name) {
+            return Optional.ofNullable(fields.get(name));
+        }
+
+        /**
+         * @return true if the record was fetched within {@code maxAge}.
+         */
+        public boolean isFresh(Duration maxAge) {
+            return System.currentTimeMillis() - fetchedAtMillis < maxAge.toMillis();
+        }
+
+        String key() {
+            return switch (kind) {
+                case CONTEST -> keyOf(platform, kind, contestId);
+                case TASK -> keyOf(platform, kind, contestId, taskId);
+                case SUBMISSION -> keyOf(platform, kind, contestId, taskId, submissionId);
+            };
+        }
+    }
+
+    private static final String LOG_FILE = "metadata.log";
+    private static final String INDEX_FILE = "metadata.idx";
+    private static final String LOCK_FILE = "metadata.lock";
+    private static final char KEY_SEPARATOR = '\u0001';
+    /** The log is rewritten once it holds this many times more records than there are live keys. */
+    private static final int COMPACTION_RATIO = 4;
+    private static final int COMPACTION_MIN_RECORDS = 10000;
+    private static final int READ_CHUNK = 4096;
+
+    private static final MetadataStore DEFAULT =
+            new MetadataStore(AbstractPlatform.getConfigDirectory().resolve("store"));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DEFAULT::flush, "metadata-store-flush"));
+    }
+
+    private final Path directory;
+    private final Path logFile;
+    private final Path indexFile;
+    private final Path lockFile;
+    /** Key to the offset of its latest record in the log. */
+    private final TreeMap<String, Long> index = new TreeMap<>();
+    /** Length of the log prefix reflected in {@link #index}. */
+    private long indexedLength;
+    /** Records in that prefix, superseded ones included. */
+    private long recordCount;
+    private boolean opened;
+    private boolean indexDirty;
+
+    public MetadataStore(Path directory) {
+        this.directory = directory;
+        this.logFile = directory.resolve(LOG_FILE);
+        this.indexFile = directory.resolve(INDEX_FILE);
+        this.lockFile = directory.resolve(LOCK_FILE);
+    }
+
+    /**
+     * @return the store in the user's configuration directory.
+     */
+    public static MetadataStore getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return all stored contests of a platform.
+     */
+    public synchronized List<Record> contests(String platform) {
+        return scan(keyOf(platform, Kind.CONTEST));
+    }
+
+    /**
+     * @return the stored contest with the given id, found through the index without scanning the listing.
+     */
+    public synchronized Optional<Record> contest(String platform, String contestId) {
+        List<Record> records = scan(keyOf(platform, Kind.CONTEST, contestId));
+        return records.isEmpty() ? Optional.empty() : Optional.of(records.get(0));
+    }
+
+    /**
+     * @return all stored tasks of a contest.
+     */
+    public synchronized List<Record> tasks(String platform, String contestId) {
+        return scan(keyOf(platform, Kind.TASK, contestId));
+    }
+
+    /**
+     * @param taskId the task whose submissions are returned, or null for the whole contest.
+     * @return stored submissions of a contest or task.
+     */
+    public synchronized List<Record> submissions(String platform, String contestId, String taskId) {
+        return scan(taskId == null
+                ? keyOf(platform, Kind.SUBMISSION, contestId)
+                : keyOf(platform, Kind.SUBMISSION, contestId, taskId));
+    }
+
+    /**
+     * Appends the records to the log; each one replaces the stored record with the same key.
+     */
+    public synchronized void putAll(Collection<Record> records) {
+        if (records.isEmpty()) return;
+        open();
+        StringBuilder batch = new StringBuilder();
+        List<String> keys = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        for (Record record : records) {
+            keys.add(record.key());
+            offsets.add(batch.length());
+            batch.append(encode(record)).append('\n');
+        }
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel lock = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lock.lock();
+                 // opened only under the lock, so it is the current log and not one a compaction replaced
+                 FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                catchUp(channel.size());
+                long start = channel.size();
+                ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, start + bytes.position());
+                }
+                for (int i = 0; i < keys.size(); i++) {
+                    index.put(keys.get(i), start + offsets.get(i));
+                }
+                indexedLength = start + bytes.limit();
+                recordCount += keys.size();
+                indexDirty = true;
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write metadata store " + logFile + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Saves the index and compacts the log if most of it is superseded records.
+     * Runs on shutdown for the default store; skipping it only makes the next start replay more of the log.
+     */
+    public synchronized void flush() {
+        if (!opened) return;
+        try {
+            if (recordCount > COMPACTION_MIN_RECORDS && recordCount > (long) COMPACTION_RATIO * index.size()) {
+                compact();
+            }
+            if (indexDirty) {
+                writeIndex();
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not save metadata store index " + indexFile + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private List<Record> scan(String prefix) {
+        open();
+        try {
+            long length = Files.exists(logFile) ? Files.size(logFile) : 0;
+            catchUp(length);
+            List<Record> records = readRange(prefix);
+            if (records != null) return records;
+            // the log was compacted by another process since it was indexed
+            index.clear();
+            indexedLength = 0;
+            recordCount = 0;
+            catchUp(Files.size(logFile));
+            records = readRange(prefix);
+            if (records != null) return records;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read metadata store " + logFile + " (" + e.getMessage() + ")");
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * @return the records in the key range, or null if an offset does not point at the indexed record.
+     */
+    private List<Record> readRange(String prefix) throws IOException {
+        SortedMap<String, Long> range = index.subMap(prefix, prefix + Character.MAX_VALUE);
+        List<Record> records = new ArrayList<>(range.size());
+        if (range.isEmpty()) return records;
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            for (Map.Entry<String, Long> entry : range.entrySet()) {
+                Record record = decode(readLineAt(log, entry.getValue()));
+                if (record == null || !record.key().equals(entry.getKey())) return null;
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private void open() {
+        if (opened) return;
+        opened = true;
+        if (!Files.exists(indexFile)) return;
+        try {
+            List<String> lines = Files.readAllLines(indexFile, StandardCharsets.US_ASCII);
+            String[] header = lines.get(0).split("\t");
+            long covered = Long.parseLong(header[0]);
+            for (int i = 1; i < lines.size(); i++) {
+                String line = lines.get(i);
+                int tab = line.indexOf('\t');
+                index.put(decodeKey(line.substring(tab + 1)), Long.parseLong(line.substring(0, tab)));
+            }
+            indexedLength = covered;
+            // indexes written before the count was saved: count the lines of the covered prefix
+            recordCount = header.length > 1 ? Long.parseLong(header[1]) : countRecords(covered);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: Rebuilding unreadable metadata store index " + indexFile + " (" + e.getMessage() + ")");
+            index.clear();
+            indexedLength = 0;
+            recordCount = 0;
+        }
+    }
+
+    private long countRecords(long length) throws IOException {
+        if (!Files.exists(logFile)) return 0;
+        long count = 0;
+        try (InputStream log = new BufferedInputStream(Files.newInputStream(logFile))) {
+            byte[] buffer = new byte[READ_CHUNK];
+            long remaining = length;
+            int read;
+            while (remaining > 0 && (read = log.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') count++;
+                }
+                remaining -= read;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Indexes records appended to the log after {@link #indexedLength}, by this or another process.
+     * A log shorter than the indexed prefix was compacted elsewhere, so the index is rebuilt.
+     */
+    private void catchUp(long logLength) throws IOException {
+        if (logLength == indexedLength) return;
+        if (logLength < indexedLength) {
+            index.clear();
+            indexedLength = 0;
+            recordCount = 0;
+            indexDirty = true;
+            if (logLength == 0) return;
+        }
+        try (InputStream log = new BufferedInputStream(Files.newInputStream(logFile))) {
+            log.skipNBytes(indexedLength);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = indexedLength;
+            long position = indexedLength;
+            int b;
+            // a line without its newline is an append still in progress; it is picked up next time
+            while (position < logLength && (b = log.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                Record record = decode(line.toString(StandardCharsets.US_ASCII));
+                if (record != null) {
+                    index.put(record.key(), offset);
+                    recordCount++;
+                }
+                line.reset();
+                offset = position;
+            }
+            indexedLength = offset;
+            indexDirty = true;
+        }
+    }
+
+    private static String readLineAt(FileChannel log, long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = log.read(buffer, position);
+            if (read <= 0) return null;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    line.write(buffer.array(), 0, i);
+                    return line.toString(StandardCharsets.US_ASCII);
+                }
+            }
+            line.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    private void compact() throws IOException {
+        Path tmp = Files.createTempFile(directory, LOG_FILE, ".tmp");
+        TreeMap<String, Long> compacted = new TreeMap<>();
+        try (FileChannel lock = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lock.lock();
+             FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            catchUp(channel.size());
+            long offset = 0;
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.US_ASCII)) {
+                for (Map.Entry<String, Long> entry : index.entrySet()) {
+                    String line = readLineAt(channel, entry.getValue()) + "\n";
+                    out.write(line);
+                    compacted.put(entry.getKey(), offset);
+                    offset += line.length();
+                }
+            }
+            Files.move(tmp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index.clear();
+            index.putAll(compacted);
+            indexedLength = offset;
+            recordCount = index.size();
+            indexDirty = true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path tmp = Files.createTempFile(directory, INDEX_FILE, ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.US_ASCII)) {
+            out.write(indexedLength + "\t" + recordCount);
+            out.write('\n');
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                out.write(entry.getValue() + "\t" + encodeKey(entry.getKey()) + "\n");
+            }
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexDirty = false;
+    }
+
+    /**
+     * Keys sort by platform, kind and ids, so the records under a contest or task form a range.
+     * Every part ends with a separator, which keeps the prefix of contest "1" from matching "10".
+     */
+    private static String keyOf(String platform, Kind kind, String... ids) {
+        StringBuilder key = new StringBuilder(platform.toLowerCase()).append(KEY_SEPARATOR).append(kind.name()).append(KEY_SEPARATOR);
+        for (String id : ids) {
+            key.append(id == null ? "" : id).append(KEY_SEPARATOR);
+        }
+        return key.toString();
+    }
+
+    /**
+     * One record per line: kind, platform, ids, fetch time and the fields as name=value,
+     * separated by tabs. Every part is URL-encoded, so the line is plain ASCII.
+     */
+    private static String encode(Record record) {
+        StringJoiner line = new StringJoiner("\t");
+        line.add(record.kind().name())
+                .add(escape(record.platform()))
+                .add(escapeNullable(record.contestId()))
+                .add(escapeNullable(record.taskId()))
+                .add(escapeNullable(record.submissionId()))
+                .add(Long.toString(record.fetchedAtMillis()));
+        for (Map.Entry<String, String> field : record.fields().entrySet()) {
+            if (field.getValue() != null) {
+                line.add(escape(field.getKey()) + "=" + escape(field.getValue()));
+            }
+        }
+        return line.toString();
+    }
+
+    private static Record decode(String line) {
+        if (line == null || line.isEmpty()) return null;
+        try {
+            String[] parts = line.split("\t", -1);
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 6; i < parts.length; i++) {
+                int eq = parts[i].indexOf('=');
+                fields.put(unescape(parts[i].substring(0, eq)), unescape(parts[i].substring(eq + 1)));
+            }
+            return new Record(Kind.valueOf(parts[0]), unescape(parts[1]),
+                    unescapeNullable(parts[2]), unescapeNullable(parts[3]), unescapeNullable(parts[4]),
+                    Collections.unmodifiableMap(fields), Long.parseLong(parts[5]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String encodeKey(String key) {
+        return escape(key);
+    }
+
+    private static String decodeKey(String encoded) {
+        return unescape(encoded);
+    }
+
+    private static String escape(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String escapeNullable(String value) {
+        return value == null ? "" : escape(value);
+    }
+
+    private static String unescape(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String unescapeNullable(String value) {
+        return value.isEmpty() ? null : unescape(value);
+    }
+}
@@ -0,0 +1,303 @@
+package po25;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide counters, timers and gauges for the client's hot paths: network fetches, parsing,
+ * browser leases and cache lookups. Names are dotted, platform first, e.g. "satori.tasks.load"
+ * or "cache.statements.hit".
+ * <p>
+ * Recording is a few atomic additions; with -Ddccp.metrics=false every instrument is a shared
+ * no-op and timers do not even read the clock. Timers keep a log-scale histogram (four buckets per
+ * power of two, so percentiles are within about 20%) instead of individual samples, so their
+ * memory does not grow with use. The values are read with {@link #snapshot()} (the {@code stats}
+ * command) and are published to Flight Recorder as periodic {@code po25.Metric} events.
+ */
+public final class Metrics {
+    /** Whether instruments record anything, switched off with -Ddccp.metrics=false. */
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("dccp.metrics"));
+
+    private static final Counter NOOP_COUNTER = new Counter(false);
+    private static final Timer NOOP_TIMER = new Timer(false);
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    static {
+        if (ENABLED) {
+            try {
+                FlightRecorder.addPeriodicEvent(MetricEvent.class, Metrics::emitEvents);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Metrics are not published to Flight Recorder (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the counter with the given name, created on first use.
+     */
+    public static Counter counter(String name) {
+        if (!ENABLED) return NOOP_COUNTER;
+        return counters.computeIfAbsent(name, n -> new Counter(true));
+    }
+
+    /**
+     * @return the timer with the given name, created on first use.
+     */
+    public static Timer timer(String name) {
+        if (!ENABLED) return NOOP_TIMER;
+        return timers.computeIfAbsent(name, n -> new Timer(true));
+    }
+
+    /**
+     * Registers a value read at snapshot time, such as a pool's free capacity. A gauge registered
+     * again under the same name replaces the old one.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        if (ENABLED) gauges.put(name, value);
+    }
+
+    /**
+     * @return the current values of all instruments, by name.
+     */
+    public static Snapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.count()));
+        Map<String, TimerStats> timerValues = new TreeMap<>();
+        timers.forEach((name, timer) -> timerValues.put(name, timer.stats()));
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            try {
+                gaugeValues.put(name, gauge.getAsLong());
+            } catch (RuntimeException e) {
+                // a gauge of something already shut down
+            }
+        });
+        return new Snapshot(Collections.unmodifiableMap(counterValues), Collections.unmodifiableMap(timerValues),
+                Collections.unmodifiableMap(gaugeValues));
+    }
+
+    /**
+     * Zeroes all counters and timers; gauges are left alone.
+     */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+    }
+
+    /**
+     * A monotonically increasing count, e.g. of cache hits.
+     */
+    public static final class Counter {
+        private final boolean enabled;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void increment() {
+            if (enabled) count.increment();
+        }
+
+        public void add(long amount) {
+            if (enabled) count.add(amount);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        private void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Distribution of the durations of an operation.
+     * <pre>
+     * Metrics.Timer.Sample sample = Metrics.timer("satori.tasks.load").start();
+     * try { ... } finally { sample.stop(); }
+     * </pre>
+     */
+    public static final class Timer {
+        /** Bucket {@code 4k + s} holds durations in [2^k, 2^(k+1)) nanoseconds, split in four. */
+        private static final int BUCKETS = 64 * 4;
+        private static final Sample NOOP_SAMPLE = new Sample(null, 0);
+
+        private final boolean enabled;
+        private final AtomicLongArray buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(boolean enabled) {
+            this.enabled = enabled;
+            this.buckets = enabled ? new AtomicLongArray(BUCKETS) : null;
+        }
+
+        /**
+         * @return a running measurement; {@link Sample#stop()} records it.
+         */
+        public Sample start() {
+            return enabled ? new Sample(this, System.nanoTime()) : NOOP_SAMPLE;
+        }
+
+        public void record(long nanos) {
+            if (!enabled) return;
+            long value = Math.max(1, nanos);
+            buckets.incrementAndGet(bucketOf(value));
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+        }
+
+        private static int bucketOf(long nanos) {
+            int power = 63 - Long.numberOfLeadingZeros(nanos);
+            int quarter = power >= 2 ? (int) (nanos >>> (power - 2)) & 3 : 0;
+            return power * 4 + quarter;
+        }
+
+        /**
+         * @return the middle of the bucket's range, in nanoseconds.
+         */
+        private static long valueOf(int bucket) {
+            int power = bucket / 4;
+            long low = (1L << power) + ((long) (bucket % 4) << Math.max(0, power - 2));
+            long width = power >= 2 ? 1L << (power - 2) : 1;
+            return low + width / 2;
+        }
+
+        private TimerStats stats() {
+            long total = count.sum();
+            if (!enabled || total == 0) return new TimerStats(0, 0, 0, 0, 0);
+            long[] counts = new long[BUCKETS];
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                seen += counts[i];
+            }
+            long max = maxNanos.get();
+            return new TimerStats(total, totalNanos.sum(), Math.min(max, percentile(counts, seen, 0.50)),
+                    Math.min(max, percentile(counts, seen, 0.99)), max);
+        }
+
+        private static long percentile(long[] counts, long total, double quantile) {
+            long rank = (long) Math.ceil(quantile * total);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank && counts[i] > 0) return valueOf(i);
+            }
+            return 0;
+        }
+
+        private void reset() {
+            if (!enabled) return;
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+
+        /**
+         * One measurement of a {@link Timer}.
+         */
+        public static final class Sample {
+            private final Timer timer;
+            private final long startNanos;
+
+            private Sample(Timer timer, long startNanos) {
+                this.timer = timer;
+                this.startNanos = startNanos;
+            }
+
+            /**
+             * Records the time since {@link Timer#start()}.
+             *
+             * @return the elapsed nanoseconds, 0 when metrics are disabled.
+             */
+            public long stop() {
+                if (timer == null) return 0;
+                long elapsed = System.nanoTime() - startNanos;
+                timer.record(elapsed);
+                return elapsed;
+            }
+        }
+    }
+
+    /**
+     * Summary of a timer; durations are in nanoseconds.
+     */
+    public record TimerStats(long count, long totalNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+    }
+
+    /**
+     * Values of all instruments at one moment, sorted by name.
+     */
+    public record Snapshot(Map<String, Long> counters, Map<String, TimerStats> timers, Map<String, Long> gauges) {
+    }
+
+    @Name("po25.Metric")
+    @Label("Client Metric")
+    @Category({"DCCP", "Metrics"})
+    @Description("Value of a client counter, gauge or timer, emitted periodically")
+    @Period("10 s")
+    static final class MetricEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Count")
+        @Description("Counter or gauge value, or the number of timed operations")
+        long count;
+
+        @Label("Median")
+        @Timespan(Timespan.NANOSECONDS)
+        long p50;
+
+        @Label("99th Percentile")
+        @Timespan(Timespan.NANOSECONDS)
+        long p99;
+
+        @Label("Maximum")
+        @Timespan(Timespan.NANOSECONDS)
+        long max;
+    }
+
+    private static void emitEvents() {
+        Snapshot snapshot = snapshot();
+        snapshot.counters().forEach((name, value) -> emit(name, value, 0, 0, 0));
+        snapshot.gauges().forEach((name, value) -> emit(name, value, 0, 0, 0));
+        snapshot.timers().forEach((name, stats) -> emit(name, stats.count(), stats.p50Nanos(), stats.p99Nanos(), stats.maxNanos()));
+    }
+
+    private static void emit(String name, long count, long p50, long p99, long max) {
+        MetricEvent event = new MetricEvent();
+        event.name = name;
+        event.count = count;
+        event.p50 = p50;
+        event.p99 = p99;
+        event.max = max;
+        event.commit();
+    }
+}
@@ -0,0 +1,123 @@
+package po25;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.URI;
+import java.util.StringJoiner;
+
+/**
+ * Flight Recorder event for one HTTP request made through {@link HttpTransport}: it spans from
+ * sending the request until the body is read (for streamed responses, until the stream is closed,
+ * so it includes the caller's parsing of the stream). The recording thread and the overlap of
+ * events show which fetches of, say, a contest load run in parallel and which wait for others.
+ * <p>
+ * Costs nothing beyond an allocation unless a recording with {@code po25.NetworkFetch} enabled is
+ * running, e.g. {@code -XX:StartFlightRecording:filename=dccp.jfr}.
+ */
+@Name("po25.NetworkFetch")
+@Label("Network Fetch")
+@Category({"DCCP", "Network"})
+@Description("HTTP request to a judge platform")
+@StackTrace(false)
+public final class NetworkFetchEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("URL Pattern")
+    @Description("URL with numeric path segments and query values replaced, e.g. /contest/{id}/problems")
+    String urlPattern;
+
+    @Label("Host")
+    String host;
+
+    @Label("Status")
+    @Description("HTTP status, or 0 if no response arrived")
+    int status;
+
+    @Label("Bytes")
+    @Description("Size of the decoded body")
+    @DataAmount
+    long bytes;
+
+    @Label("Streamed")
+    boolean streamed;
+
+    /** The full URL, turned into a pattern only if the event is recorded. */
+    private transient String url;
+
+    private NetworkFetchEvent(String method, String url, boolean streamed) {
+        this.method = method;
+        this.url = url;
+        this.streamed = streamed;
+    }
+
+    static NetworkFetchEvent begin(String method, String url, boolean streamed) {
+        NetworkFetchEvent event = new NetworkFetchEvent(method, url, streamed);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and records it if a recording wants it.
+     *
+     * @param status the HTTP status, 0 if the request failed.
+     * @param bytes  the decoded body size read so far.
+     */
+    void finish(int status, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            this.bytes = bytes;
+            this.urlPattern = urlPattern(url);
+            this.host = host(url);
+            commit();
+        }
+    }
+
+    /**
+     * Reduces a URL to its shape, so that events of the same kind of request group together:
+     * path segments with digits become {@code {id}} and query values become {@code *}.
+     * <pre>
+     * https://satori.tcs.uj.edu.pl/contest/5812/problems  -> /contest/{id}/problems
+     * https://codeforces.com/api/contest.standings?contestId=2094&amp;from=1
+     *                                                     -> /api/contest.standings?contestId=*&amp;from=*
+     * </pre>
+     */
+    public static String urlPattern(String url) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+        StringJoiner path = new StringJoiner("/");
+        for (String segment : (uri.getRawPath() != null ? uri.getRawPath() : "").split("/", -1)) {
+            path.add(segment.chars().anyMatch(Character::isDigit) ? "{id}" : segment);
+        }
+        StringBuilder pattern = new StringBuilder(path.length() > 0 ? path.toString() : "/");
+        String query = uri.getRawQuery();
+        if (query != null) {
+            char separator = '?';
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                pattern.append(separator).append(equals < 0 ? parameter : parameter.substring(0, equals) + "=*");
+                separator = '&';
+            }
+        }
+        return pattern.toString();
+    }
+
+    private static String host(String url) {
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
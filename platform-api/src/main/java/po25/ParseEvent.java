@@ -0,0 +1,69 @@
+package po25;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for parsing one fetched page or API response; its duration is the parse
+ * time. Used around every Jsoup and JSON parse of platform data:
+ * <pre>
+ * ParseEvent event = ParseEvent.begin("html", url, body.length());
+ * try { ... } finally { event.finish(); }
+ * </pre>
+ */
+@Name("po25.Parse")
+@Label("Parse")
+@Category({"DCCP", "Parsing"})
+@Description("Parsing of a page or API response")
+@StackTrace(false)
+public final class ParseEvent extends Event {
+    @Label("Format")
+    @Description("html or json")
+    String format;
+
+    @Label("URL Pattern")
+    @Description("Pattern of the URL the input came from, see NetworkFetchEvent")
+    String urlPattern;
+
+    @Label("Input Size")
+    @Description("Characters parsed, or -1 when parsed incrementally from a stream")
+    @DataAmount
+    long size;
+
+    private transient String url;
+
+    private ParseEvent(String format, String url, long size) {
+        this.format = format;
+        this.url = url;
+        this.size = size;
+    }
+
+    /**
+     * Starts timing a parse.
+     *
+     * @param format "html" or "json".
+     * @param url    where the input came from, null if unknown.
+     * @param size   characters of input, -1 if it is read from a stream.
+     */
+    public static ParseEvent begin(String format, String url, long size) {
+        ParseEvent event = new ParseEvent(format, url, size);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and records it if a recording wants it.
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            this.urlPattern = url != null ? NetworkFetchEvent.urlPattern(url) : null;
+            commit();
+        }
+    }
+}
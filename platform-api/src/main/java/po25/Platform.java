@@ -1,6 +1,10 @@
 package po25;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -46,8 +50,19 @@ public interface Platform {
      */
     List<Contest> getAllContests() throws PlatformException, LoginException, ConnectionException;
 
+    /**
+     * Returns the contests as an unmodifiable view, without copying them.
+     * Use it for read-only iteration; call {@link #getAllContests()} for a list that can be sorted or changed.
+     *
+     * @return unmodifiable collection of Contest objects.
+     */
+    default Collection<Contest> getContestView() throws PlatformException, LoginException, ConnectionException {
+        return Collections.unmodifiableList(getAllContests());
+    }
+
     /**
      * Retrieves a specific contest based on its identifier.
+     * Implementations look the contest up by key instead of scanning the contest list.
      *
      * @param contestId contest identifier.
      * @return Optional containing the Contest object if a contest with the given ID exists, otherwise an empty Optional.
@@ -78,5 +93,20 @@ public interface Platform {
      * @return list of submissions.
      */
     List<Submission> getSubmissionHistory() throws PlatformException, LoginException, ConnectionException;
+
+    /**
+     * Refreshes the verdicts of the given submissions with as few requests as the platform allows
+     * (e.g. one per contest) and returns them. The default asks every submission for its verdict.
+     *
+     * @param submissions submissions obtained from this platform.
+     * @return the current verdict of every submission, keyed by submission id.
+     */
+    default Map<String, Verdict> refreshVerdicts(Collection<? extends Submission> submissions) throws PlatformException, LoginException, ConnectionException {
+        Map<String, Verdict> verdicts = new LinkedHashMap<>();
+        for (Submission submission : submissions) {
+            verdicts.put(submission.getSubmissionId(), submission.getVerdictType());
+        }
+        return verdicts;
+    }
 }
 
@@ -0,0 +1,92 @@
+package po25;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent loads of the same resource: while a load for a key is running, other
+ * callers for that key wait for it and get its result (or its exception) instead of starting
+ * their own. A call made after the load finished starts a new one, so this only merges requests
+ * that overlap; remembering what was loaded stays with the caller's own {@code loaded} flags. A
+ * caller can see its flag unset just before the load finishes and reach {@code run} just after,
+ * so loads check the flag again inside the flight and only an explicit reload skips the check.
+ * <p>
+ * The exception types a load may throw are passed as class tokens, so that waiting callers
+ * rethrow the loader's exception with the caller's own checked types:
+ * <pre>
+ * loads.run("tasks", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+ *     if (!loaded) fetchTasks();
+ *     return null;
+ * });
+ * </pre>
+ * A thread that asks again for a key it is itself loading (a load that needs itself) runs the
+ * load directly instead of waiting for itself.
+ */
+public final class SingleFlight<K, V> {
+
+    private record Flight<V>(Thread leader, CompletableFuture<V> result) {
+    }
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code load}, or waits for the load of {@code key} already running.
+     *
+     * @param failure the checked exception {@code load} may throw.
+     * @return the result of the load this call ran or waited for.
+     */
+    public <E extends Exception> V run(K key, Class<E> failure, IoScope.Call<V> load) throws E {
+        return run(key, failure, failure, failure, load);
+    }
+
+    /**
+     * Runs {@code load}, or waits for the load of {@code key} already running.
+     *
+     * @return the result of the load this call ran or waited for.
+     * @throws CancellationException if the thread was interrupted while waiting for another load.
+     */
+    public <E1 extends Exception, E2 extends Exception, E3 extends Exception> V run(
+            K key, Class<E1> failure1, Class<E2> failure2, Class<E3> failure3, IoScope.Call<V> load) throws E1, E2, E3 {
+        Flight<V> own = new Flight<>(Thread.currentThread(), new CompletableFuture<>());
+        Flight<V> running = inFlight.putIfAbsent(key, own);
+        Throwable failure;
+        if (running == null) {
+            try {
+                V value = load.call();
+                own.result().complete(value);
+                return value;
+            } catch (Exception | Error e) {
+                own.result().completeExceptionally(e);
+                failure = e;
+            } finally {
+                inFlight.remove(key, own);
+            }
+        } else if (running.leader() == Thread.currentThread()) {
+            try {
+                return load.call();
+            } catch (Exception | Error e) {
+                failure = e;
+            }
+        } else {
+            Metrics.counter("loads.coalesced").increment();
+            try {
+                return running.result().get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the load of " + key);
+            }
+        }
+
+        if (failure1.isInstance(failure)) throw failure1.cast(failure);
+        if (failure2.isInstance(failure)) throw failure2.cast(failure);
+        if (failure3.isInstance(failure)) throw failure3.cast(failure);
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure instanceof Error e) throw e;
+        throw new IllegalStateException("Unexpected failure loading " + key, failure);
+    }
+}
@@ -0,0 +1,138 @@
+package po25;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Persistent cache of parsed task statements, shared by all processes of the client.
+ * Every entry lives in its own file under {@code ~/.dccp/cache/statements}, named by
+ * the SHA-256 of its platform/contest/task key, and keeps the validators (ETag,
+ * Last-Modified) needed to refresh it with a conditional request.
+ */
+public class StatementCache {
+
+    /**
+     * A cached statement. Fields a platform does not provide are null.
+     *
+     * @param content         parsed (plain text) statement.
+     * @param unparsedContent statement as returned by the platform (usually HTML).
+     * @param fetchedAtMillis when the entry was last downloaded or revalidated.
+     */
+    public record Entry(String content, String unparsedContent, String css,
+                        String sampleInput, String sampleOutput,
+                        String timeLimit, String memoryLimit,
+                        String etag, String lastModified, long fetchedAtMillis) {
+
+        /**
+         * @return true if the entry was fetched or revalidated within {@code maxAge}.
+         */
+        public boolean isFresh(Duration maxAge) {
+            return System.currentTimeMillis() - fetchedAtMillis < maxAge.toMillis();
+        }
+
+        /**
+         * @return a copy of this entry marked as revalidated now.
+         */
+        public Entry revalidated() {
+            return new Entry(content, unparsedContent, css, sampleInput, sampleOutput,
+                    timeLimit, memoryLimit, etag, lastModified, System.currentTimeMillis());
+        }
+    }
+
+    private static final StatementCache DEFAULT =
+            new StatementCache(AbstractPlatform.getConfigDirectory().resolve("cache").resolve("statements"));
+
+    private final DiskCache disk;
+
+    public StatementCache(Path directory) {
+        this.disk = new DiskCache(directory);
+    }
+
+    /**
+     * @return the cache stored in the user's configuration directory.
+     */
+    public static StatementCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Reads an entry from disk.
+     *
+     * @return the entry, or an empty Optional if it is missing or unreadable.
+     */
+    public Optional<Entry> get(String platform, String contestId, String taskId) {
+        String key = keyFor(platform, contestId, taskId);
+        try {
+            Optional<Properties> stored = disk.read(key);
+            if (stored.isEmpty()) {
+                Metrics.counter("cache.statements.miss").increment();
+                return Optional.empty();
+            }
+            Metrics.counter("cache.statements.hit").increment();
+            Properties props = stored.get();
+            return Optional.of(new Entry(
+                    props.getProperty("content"),
+                    props.getProperty("unparsedContent"),
+                    props.getProperty("css"),
+                    props.getProperty("sampleInput"),
+                    props.getProperty("sampleOutput"),
+                    props.getProperty("timeLimit"),
+                    props.getProperty("memoryLimit"),
+                    props.getProperty("etag"),
+                    props.getProperty("lastModified"),
+                    Long.parseLong(props.getProperty("fetchedAt", "0"))));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Warning: Ignoring unreadable statement cache entry " + disk.fileFor(key) + " (" + e.getMessage() + ")");
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes an entry to disk, replacing the previous one atomically.
+     * Failures are reported but never propagated, the cache is only an optimization.
+     */
+    public void put(String platform, String contestId, String taskId, Entry entry) {
+        Properties props = new Properties();
+        setIfPresent(props, "content", entry.content());
+        setIfPresent(props, "unparsedContent", entry.unparsedContent());
+        setIfPresent(props, "css", entry.css());
+        setIfPresent(props, "sampleInput", entry.sampleInput());
+        setIfPresent(props, "sampleOutput", entry.sampleOutput());
+        setIfPresent(props, "timeLimit", entry.timeLimit());
+        setIfPresent(props, "memoryLimit", entry.memoryLimit());
+        setIfPresent(props, "etag", entry.etag());
+        setIfPresent(props, "lastModified", entry.lastModified());
+        props.setProperty("fetchedAt", Long.toString(entry.fetchedAtMillis()));
+
+        String key = keyFor(platform, contestId, taskId);
+        try {
+            disk.write(key, props, platform + "/" + contestId + "/" + taskId);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write statement cache entry " + disk.fileFor(key) + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Removes an entry, e.g. after the platform reported that the task no longer exists.
+     */
+    public void invalidate(String platform, String contestId, String taskId) {
+        try {
+            disk.delete(keyFor(platform, contestId, taskId));
+        } catch (IOException e) {
+            System.err.println("Warning: Could not delete statement cache entry (" + e.getMessage() + ")");
+        }
+    }
+
+    private static String keyFor(String platform, String contestId, String taskId) {
+        return platform.toLowerCase() + "/" + contestId + "/" + taskId;
+    }
+
+    private static void setIfPresent(Properties props, String key, String value) {
+        if (value != null) {
+            props.setProperty(key, value);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package po25;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public interface Submission {
     String getSubmissionId();
@@ -12,7 +13,51 @@ public interface Submission {
 
     String getVerdict();
 
+    /**
+     * Returns the verdict as a {@link Verdict}. Platforms parse it once when the submission is read;
+     * the default parses {@link #getVerdict()} on every call.
+     *
+     * @return the verdict; not terminal while the submission is being judged.
+     */
+    default Verdict getVerdictType() {
+        return Verdict.parse(getVerdict());
+    }
+
+    /**
+     * Returns the verdict last seen, without contacting the platform: a pending submission is not
+     * refreshed, so this suits places where a request per submission would be wasted, such as
+     * saving submissions or seeding a view that a watcher keeps up to date. The default suits
+     * submissions whose {@link #getVerdict()} never fetches.
+     *
+     * @return the last known verdict text.
+     */
+    default String peekVerdict() {
+        return getVerdict();
+    }
+
+    /**
+     * @return the last known verdict as a {@link Verdict}, without contacting the platform.
+     * @see #peekVerdict()
+     */
+    default Verdict peekVerdictType() {
+        return Verdict.parse(peekVerdict());
+    }
+
+    /**
+     * @return CPU time used by the solution in milliseconds, if the platform reports it.
+     */
+    default OptionalLong getExecutionTimeMillis() {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * @return memory used by the solution in bytes, if the platform reports it.
+     */
+    default OptionalLong getMemoryUsedBytes() {
+        return OptionalLong.empty();
+    }
+
     Optional<LocalDateTime> getSubmittedAt();
 
     Optional<String> getLanguage();
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package po25;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public interface SubmissionResult {
     String getSubmissionId();
@@ -10,15 +11,11 @@ public interface SubmissionResult {
 
     Optional<String> getContestId();
 
-    // TODO:
-    // getVerdict() String -> enum
-    // getMemory and getExeTime -> special data type
+    Verdict getVerdict();
 
-    String getVerdict();
+    OptionalLong getExecutionTimeMillis();
 
-    Optional<String> getExecutionTime(); // "123 ms"
-
-    Optional<String> getMemoryUsed();    // "16 MB"
+    OptionalLong getMemoryUsedBytes();
 
     Optional<LocalDateTime> getSubmittedAt();
 
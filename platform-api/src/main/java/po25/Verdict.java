@@ -0,0 +1,116 @@
+package po25;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Outcome of a submission, independent of how a platform spells it.
+ * Platforms parse their verdict text once when a submission is read and keep the result,
+ * so polling and statistics compare enum values instead of strings.
+ */
+public enum Verdict {
+    QUEUED                 ("Waiting",                 false),
+    RUNNING                ("Running",                 false),
+    /** The verdict could not be fetched; it may still be pending. */
+    UNKNOWN                ("Unknown",                 false),
+    ACCEPTED               ("Accepted",                true),
+    PARTIAL                ("Partial result",          true),
+    WRONG_ANSWER           ("Wrong answer",            true),
+    PRESENTATION_ERROR     ("Presentation error",      true),
+    TIME_LIMIT_EXCEEDED    ("Time limit exceeded",     true),
+    MEMORY_LIMIT_EXCEEDED  ("Memory limit exceeded",   true),
+    IDLENESS_LIMIT_EXCEEDED("Idleness limit exceeded", true),
+    RUNTIME_ERROR          ("Runtime error",           true),
+    COMPILATION_ERROR      ("Compilation error",       true),
+    REJECTED               ("Rejected",                true),
+    HACKED                 ("Hacked",                  true),
+    SKIPPED                ("Skipped",                 true),
+    JUDGE_ERROR            ("Denial of judgement",     true),
+    /** A final verdict this client does not recognize. */
+    OTHER                  ("Other",                   true);
+
+    /** Exact spellings: Codeforces API codes, Satori status codes and placeholders used by the platforms. */
+    private static final Map<String, Verdict> CODES = new HashMap<>();
+
+    static {
+        for (String code : new String[]{"", "...", "QUE", "None", "Waiting", "In queue"}) CODES.put(code, QUEUED);
+        CODES.put("Unknown", UNKNOWN);
+        // Codeforces API
+        CODES.put("TESTING", RUNNING);
+        CODES.put("OK", ACCEPTED);
+        CODES.put("PARTIAL", PARTIAL);
+        CODES.put("WRONG_ANSWER", WRONG_ANSWER);
+        CODES.put("PRESENTATION_ERROR", PRESENTATION_ERROR);
+        CODES.put("TIME_LIMIT_EXCEEDED", TIME_LIMIT_EXCEEDED);
+        CODES.put("MEMORY_LIMIT_EXCEEDED", MEMORY_LIMIT_EXCEEDED);
+        CODES.put("IDLENESS_LIMIT_EXCEEDED", IDLENESS_LIMIT_EXCEEDED);
+        CODES.put("RUNTIME_ERROR", RUNTIME_ERROR);
+        CODES.put("COMPILATION_ERROR", COMPILATION_ERROR);
+        CODES.put("REJECTED", REJECTED);
+        CODES.put("CHALLENGED", HACKED);
+        CODES.put("SKIPPED", SKIPPED);
+        CODES.put("FAILED", JUDGE_ERROR);
+        CODES.put("CRASHED", JUDGE_ERROR);
+        CODES.put("INPUT_PREPARATION_CRASHED", JUDGE_ERROR);
+        // Satori
+        CODES.put("ANS", WRONG_ANSWER);
+        CODES.put("TLE", TIME_LIMIT_EXCEEDED);
+        CODES.put("MEM", MEMORY_LIMIT_EXCEEDED);
+        CODES.put("RTE", RUNTIME_ERROR);
+        CODES.put("EXT", RUNTIME_ERROR);
+        CODES.put("CME", COMPILATION_ERROR);
+        CODES.put("REJ", REJECTED);
+        CODES.put("INT", JUDGE_ERROR);
+    }
+
+    private final String displayName;
+    private final boolean terminal;
+
+    Verdict(String displayName, boolean terminal) {
+        this.displayName = displayName;
+        this.terminal = terminal;
+    }
+
+    /**
+     * @return true if the judge is done with the submission and the verdict will not change.
+     */
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    /**
+     * Maps a platform's verdict text to a verdict: an exact code first, then the start of
+     * a descriptive text such as "Wrong answer on test 3" or "Running on test 2".
+     *
+     * @param text verdict as the platform reports it; null means not judged yet.
+     * @return the verdict, {@link #OTHER} for an unrecognized final verdict.
+     */
+    public static Verdict parse(String text) {
+        if (text == null) return QUEUED;
+        Verdict exact = CODES.get(text);
+        if (exact != null) return exact;
+
+        String lower = text.trim().toLowerCase(Locale.ROOT);
+        if (lower.isEmpty()) return QUEUED;
+        if (lower.startsWith("accepted") || lower.startsWith("полное решение")) return ACCEPTED;
+        if (lower.startsWith("running") || lower.startsWith("testing") || lower.startsWith("выполняется")) return RUNNING;
+        if (lower.startsWith("in queue") || lower.startsWith("в очереди")) return QUEUED;
+        if (lower.startsWith("wrong answer") || lower.startsWith("неправильный ответ")) return WRONG_ANSWER;
+        if (lower.startsWith("time limit") || lower.startsWith("превышено ограничение времени")) return TIME_LIMIT_EXCEEDED;
+        if (lower.startsWith("memory limit") || lower.startsWith("превышено ограничение памяти")) return MEMORY_LIMIT_EXCEEDED;
+        if (lower.startsWith("idleness limit")) return IDLENESS_LIMIT_EXCEEDED;
+        if (lower.startsWith("runtime error") || lower.startsWith("ошибка исполнения")) return RUNTIME_ERROR;
+        if (lower.startsWith("compilation error") || lower.startsWith("ошибка компиляции")) return COMPILATION_ERROR;
+        if (lower.startsWith("presentation error")) return PRESENTATION_ERROR;
+        if (lower.startsWith("partial")) return PARTIAL;
+        if (lower.startsWith("hacked") || lower.startsWith("взломано")) return HACKED;
+        if (lower.startsWith("skipped")) return SKIPPED;
+        if (lower.startsWith("denial of judgement")) return JUDGE_ERROR;
+        return OTHER;
+    }
+
+    @Override public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,57 @@
+package po25;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Wywołania metod CF API zwracających tablicę w polu "result".
+ */
+final class CfApi {
+    private CfApi() {
+    }
+
+    /**
+     * @param apiBase        adres API, np. "https://codeforces.com/api".
+     * @param methodAndQuery np. "/user.status?handle=tourist".
+     * @return zawartość pola "result".
+     * @throws PlatformException przy błędzie sieci, statusie innym niż OK lub niepoprawnym JSON-ie.
+     */
+    static JSONArray call(String apiBase, String methodAndQuery) throws PlatformException {
+        Metrics.Timer.Sample sample = Metrics.timer("codeforces.api").start();
+        try {
+            String body = HttpTransport.getDefault().request(apiBase + methodAndQuery)
+                    .timeout(Duration.ofSeconds(30))
+                    .ignoreHttpErrors()
+                    .get()
+                    .body();
+
+            ParseEvent event = ParseEvent.begin("json", apiBase + methodAndQuery, body.length());
+            JSONObject root;
+            try {
+                root = new JSONObject(body);
+            } finally {
+                event.finish();
+            }
+            if (!"OK".equals(root.getString("status"))) {
+                throw new PlatformException("CF API error: " + root.optString("comment", root.toString()));
+            }
+            return root.getJSONArray("result");
+        } catch (IOException e) {
+            throw new PlatformException("Błąd sieciowy przy wywołaniu CF API", e);
+        } catch (JSONException e) {
+            throw new PlatformException("Niepoprawna odpowiedź CF API: " + e.getMessage(), e);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
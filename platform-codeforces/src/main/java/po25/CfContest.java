@@ -1,10 +1,8 @@
 package po25;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.jsoup.Jsoup;
-
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
@@ -17,21 +15,29 @@ public class CfContest implements Contest {
     private final String title;
     private final LocalDateTime start;
     private final LocalDateTime end;
+    private final String phase;
     protected final CodeforcesPlatform codeforces;
-    private Map<String, CfTask> tasks;
-    private Map<String, CfSubmission> submissions;
-    private boolean loadedSubmissions;
+    private volatile Map<String, CfTask> tasks;
+    private volatile Map<String, CfSubmission> submissions;
+    private volatile boolean loaded;
+    private volatile boolean loadedSubmissions;
+    /** Trwające wczytywania zadań ("tasks") i zgłoszeń ("submissions", "submissions.api"). */
+    private final SingleFlight<String, Void> loads = new SingleFlight<>();
 
     CfContest(String id, String title,
               java.time.ZonedDateTime startZdt,
               java.time.ZonedDateTime endZdt,
+              String phase,
               CodeforcesPlatform codeforces) {
         this.id = id;
         this.title = title;
         this.start = startZdt.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
         this.end   = endZdt.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        this.phase = phase;
         this.codeforces = codeforces;
+        this.loaded = false;
         this.loadedSubmissions = false;
+        tasks = new TreeMap<>();
         submissions = new TreeMap<>();
     }
 
@@ -44,48 +50,118 @@ public class CfContest implements Contest {
         return title;
     }
 
+    /**
+     * @return faza z contest.list, np. BEFORE, CODING, FINISHED.
+     */
+    String getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return czy konkurs jest pokazywany na liście (tylko fazy BEFORE i FINISHED).
+     */
+    boolean isListed() {
+        return "BEFORE".equals(phase) || "FINISHED".equals(phase);
+    }
+
+    /**
+     * @return czy drugi obiekt opisuje ten sam konkurs w tej samej fazie i z tym samym tytułem i terminem.
+     */
+    boolean sameSchedule(CfContest other) {
+        return id.equals(other.id) && Objects.equals(title, other.title) && Objects.equals(phase, other.phase)
+                && start.equals(other.start) && end.equals(other.end);
+    }
+
     @Override
     public List<Task> getTasks() throws PlatformException {
-        if (tasks == null) {
+        if (!loaded) {
             this.loadTasks();
         }
         return new ArrayList<>(tasks.values());
     }
 
+    @Override
+    public Collection<Task> getTaskView() throws PlatformException {
+        if (!loaded) {
+            this.loadTasks();
+        }
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
     private void loadTasks() throws PlatformException {
-        try {
-            String url = this.codeforces.API_BASE + "/contest.standings"
-                    + "?contestId=" + this.getId()
-                    + "&from=1&count=1000";
-            String body = Jsoup.connect(url)
-                    .ignoreContentType(true)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10_000)
-                    .execute()
-                    .body();
-
-            JSONObject root = new JSONObject(body);
-            if (!"OK".equals(root.getString("status"))) {
-                throw new PlatformException("CF API error: " + root);
+        loads.run("tasks", PlatformException.class, () -> {
+            // ktoś mógł wczytać zadania, zanim ten wątek dołączył do wczytywania
+            if (loaded) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("codeforces.tasks.load").start();
+            try {
+                fetchTasks();
+            } finally {
+                sample.stop();
             }
+            return null;
+        });
+    }
 
-            JSONArray problems = root
-                    .getJSONObject("result")
-                    .getJSONArray("problems");
-
-            this.tasks = new TreeMap<>();
-            for (int i = 0; i < problems.length(); i++) {
-                JSONObject p = problems.getJSONObject(i);
-                String index = p.getString("index");
-                String name  = p.getString("name");
-                String link  = "https://codeforces.com/contest/"
-                        + this.getId()
-                        + "/problem/" + index;
-                tasks.put(index, new CfTask(index, name, link, this));
+    private void fetchTasks() throws PlatformException {
+        // count=1: potrzebujemy tylko listy zadań, nie wierszy rankingu
+        String url = this.codeforces.apiBase + "/contest.standings"
+                + "?contestId=" + this.getId()
+                + "&from=1&count=1";
+        Map<String, String> problems = new LinkedHashMap<>();
+        try (InputStream body = HttpTransport.getDefault().request(url)
+                .timeout(Duration.ofSeconds(10))
+                .ignoreHttpErrors()
+                .stream()) {
+            ParseEvent event = ParseEvent.begin("json", url, -1);
+            try {
+                CfJson.readStandingsProblems(body, problems::put);
+            } finally {
+                event.finish();
             }
         } catch (IOException e) {
             throw new PlatformException("Błąd pobierania zadań", e);
         }
+        // pod monitorem konkursu, żeby zadanie dodane w międzyczasie przez taskFor nie przepadło
+        synchronized (this) {
+            Map<String, CfTask> newTasks = new TreeMap<>();
+            for (Map.Entry<String, String> problem : problems.entrySet()) {
+                CfTask task = tasks.get(problem.getKey());
+                newTasks.put(problem.getKey(), task != null ? task : newTask(problem.getKey(), problem.getValue()));
+            }
+            this.tasks = newTasks;
+            this.loaded = true;
+        }
+    }
+
+    private CfTask newTask(String index, String name) {
+        String link = this.codeforces.url + "/contest/"
+                + this.getId()
+                + "/problem/" + index;
+        CfTask task = new CfTask(index, name, link, this);
+        if (this.loadedSubmissions) {
+            task.setSubmissions(new TreeMap<>());
+        }
+        return task;
+    }
+
+    /**
+     * Zwraca zadanie o danym indeksie, tworząc je z danych zgłoszenia, jeśli lista zadań
+     * nie była jeszcze pobrana. Nie wymaga zapytania do contest.standings.
+     * Mapa zadań jest kopiowana przy zapisie, więc czytający bez blokady widzą zawsze całą mapę.
+     */
+    CfTask taskFor(String index, String name) {
+        CfTask task = tasks.get(index);
+        if (task != null) return task;
+        synchronized (this) {
+            task = tasks.get(index);
+            if (task == null) {
+                task = newTask(index, name);
+                Map<String, CfTask> added = new TreeMap<>(tasks);
+                added.put(index, task);
+                this.tasks = added;
+            }
+            return task;
+        }
     }
 
     @Override
@@ -95,9 +171,10 @@ public class CfContest implements Contest {
 
     @Override
     public Optional<Task> getTaskById(String taskId) throws PlatformException {
-        return getTasks().stream()
-                .filter(t -> t.getId().equals(taskId))
-                .findFirst();
+        if (!loaded) {
+            this.loadTasks();
+        }
+        return Optional.ofNullable(tasks.get(taskId));
     }
 
     @Override
@@ -115,12 +192,90 @@ public class CfContest implements Contest {
         return title + " (starts: " + start + ")";
     }
 
-    protected void loadSubmissions() throws PlatformException {
-        if(this.tasks == null) this.loadTasks();
+    /**
+     * Ustawia zgłoszenia konkursu i rozdziela je do zadań; zadania bez zgłoszeń dostają pustą mapę.
+     */
+    synchronized void setSubmissions(Map<String, CfSubmission> newSubmissions, Map<CfTask, Map<String, CfSubmission>> byTask) {
+        for (CfTask task : tasks.values()) {
+            task.setSubmissions(byTask.getOrDefault(task, new TreeMap<>()));
+        }
+        this.submissions = newSubmissions;
+        this.loadedSubmissions = true;
+    }
+
+    /**
+     * Dopisuje nowe zgłoszenia do już wczytanych map konkursu i zadań.
+     * Konkurs (lub zadanie), którego historia nie była jeszcze wczytana, zostaje niewczytany -
+     * pełne wczytanie i tak pobierze te zgłoszenia.
+     */
+    synchronized void mergeSubmissions(Map<String, CfSubmission> newSubmissions, Map<CfTask, Map<String, CfSubmission>> byTask) {
+        for (Map.Entry<CfTask, Map<String, CfSubmission>> entry : byTask.entrySet()) {
+            if (entry.getKey().contest == this) {
+                entry.getKey().mergeSubmissions(entry.getValue());
+            }
+        }
+        if (!this.loadedSubmissions) return;
+        Map<String, CfSubmission> merged = new TreeMap<>(this.submissions);
+        merged.putAll(newSubmissions);
+        this.submissions = merged;
+    }
+
+    protected void loadSubmissionsFromApi() throws PlatformException {
+        loads.run("submissions.api", PlatformException.class, () -> {
+            Metrics.Timer.Sample sample = Metrics.timer("codeforces.submissions.load").start();
+            try {
+                fetchSubmissionsFromApi();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchSubmissionsFromApi() throws PlatformException {
+        if (this.codeforces.username == null) {
+            throw new PlatformException("Not logged in to Codeforces. Please login first.");
+        }
+        CfSubmissionLoader loader = new CfSubmissionLoader(this.codeforces.apiBase);
+        if (this.loadedSubmissions) {
+            loader.loadContestHistorySince(this.codeforces.username, this,
+                    CfSubmissionLoader.highWaterMark(this.submissions.keySet()));
+        } else {
+            loader.loadContestHistory(this.codeforces.username, this);
+        }
+    }
+
+    /**
+     * Odświeża historię zgłoszeń konkursu. Po pierwszym wczytaniu pobiera tylko zgłoszenia
+     * nowsze niż największe znane id.
+     */
+    public void refreshSubmissions() throws PlatformException {
+        loadSubmissions(true);
+    }
+
+    /**
+     * @param refresh pobiera zgłoszenia nawet wtedy, gdy są już wczytane.
+     */
+    protected void loadSubmissions(boolean refresh) throws PlatformException {
+        loads.run("submissions", PlatformException.class, () -> {
+            if (!refresh && loadedSubmissions) return null;
+            try {
+                loadSubmissionsFromApi();
+                return null;
+            } catch (PlatformException e) {
+                System.err.println("Codeforces: " + e.getMessage() + " - falling back to the browser.");
+            }
+            loadSubmissionsWithBrowser();
+            return null;
+        });
+    }
+
+    protected void loadSubmissionsWithBrowser() throws PlatformException {
+        if(!this.loaded) this.loadTasks();
         Map<String, CfSubmission> newSubmissions = new TreeMap<>();
         this.loadedSubmissions = false;
         for(CfTask task: tasks.values()) {
-            task.loadSubmissions();
+            task.loadSubmissionsWithBrowser();
             for(Submission submission: task.getSubmissionHistory()) {
                 String submissionId = submission.getSubmissionId();
                 if(!submissions.containsKey(submissionId)){
@@ -130,13 +285,15 @@ public class CfContest implements Contest {
                 }
             }
         }
-        submissions = newSubmissions;
-        this.loadedSubmissions = true;
+        synchronized (this) {
+            submissions = newSubmissions;
+            this.loadedSubmissions = true;
+        }
     }
 
     @Override
     public List<Submission> getSubmissionHistory() throws PlatformException{
-        if(!this.loadedSubmissions) this.loadSubmissions();
+        if(!this.loadedSubmissions) this.loadSubmissions(false);
         return new ArrayList<>(submissions.values());
     }
 }
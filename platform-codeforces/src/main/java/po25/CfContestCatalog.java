@@ -0,0 +1,92 @@
+package po25;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Migawka listy konkursów z contest.list wraz z indeksem id → konkurs.
+ * <p>
+ * Ważność zależy od faz konkursów: zakończone (FINISHED) się nie zmieniają, więc lista żyje
+ * najwyżej {@code ttl}, ale wygasa wcześniej, gdy któryś nadchodzący konkurs (BEFORE) powinien
+ * już się zacząć albo trwający konkurs się skończyć, bo wtedy zmienia się jego faza. Konkurs,
+ * który CF trzyma w BEFORE już po godzinie startu, jest sprawdzany co {@link #ACTIVE_TTL}, a nie
+ * przy każdym zapytaniu.
+ * Trwające konkursy są w migawce tylko po to, żeby wyznaczyć ten moment; na liście jak dotąd
+ * są wyłącznie konkursy w fazie BEFORE lub FINISHED.
+ */
+final class CfContestCatalog {
+    /** Domyślny czas życia listy, zmieniany przez -Ddccp.codeforces.contestsTtlMinutes. */
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(Long.getLong("dccp.codeforces.contestsTtlMinutes", 60));
+    /**
+     * Jak często sprawdzać konkursy w trakcie testowania (koniec testów nie jest znany z góry),
+     * zmieniane przez -Ddccp.codeforces.activeContestsTtlMinutes.
+     */
+    static final Duration ACTIVE_TTL = Duration.ofMinutes(Long.getLong("dccp.codeforces.activeContestsTtlMinutes", 5));
+
+    private final Map<String, CfContest> byId;
+    private final List<Contest> listed;
+    private final long expiresAtMillis;
+
+    private CfContestCatalog(Map<String, CfContest> byId, List<Contest> listed, long expiresAtMillis) {
+        this.byId = byId;
+        this.listed = listed;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * @param fetched  wszystkie konkursy z contest.list, w dowolnej fazie.
+     * @param previous poprzednia migawka lub null; jej obiekty są zachowywane dla konkursów,
+     *                 które się nie zmieniły, razem z wczytanymi zadaniami i zgłoszeniami.
+     */
+    static CfContestCatalog of(List<CfContest> fetched, CfContestCatalog previous, Duration ttl, long nowMillis) {
+        Map<String, CfContest> byId = new HashMap<>(fetched.size() * 2);
+        TreeMap<String, Contest> ordered = new TreeMap<>();
+        long expiresAt = nowMillis + ttl.toMillis();
+        for (CfContest contest : fetched) {
+            switch (contest.getPhase()) {
+                case "BEFORE" -> expiresAt = Math.min(expiresAt, Math.max(nowMillis + ACTIVE_TTL.toMillis(), toMillis(contest.getStartTime())));
+                case "FINISHED" -> { }
+                case "CODING" -> expiresAt = Math.min(expiresAt, Math.max(nowMillis + ACTIVE_TTL.toMillis(), toMillis(contest.getEndTime())));
+                default -> expiresAt = Math.min(expiresAt, nowMillis + ACTIVE_TTL.toMillis());
+            }
+            if (!contest.isListed()) continue;
+
+            CfContest known = previous == null ? null : previous.byId.get(contest.getId());
+            CfContest kept = known != null && known.sameSchedule(contest) ? known : contest;
+            byId.put(kept.getId(), kept);
+            ordered.put(kept.getId(), kept);
+        }
+        return new CfContestCatalog(byId, Collections.unmodifiableList(new ArrayList<>(ordered.values())), expiresAt);
+    }
+
+    boolean isFresh(long nowMillis) {
+        return nowMillis < expiresAtMillis;
+    }
+
+    /**
+     * @return konkurs o danym id bez przeszukiwania listy, lub null.
+     */
+    CfContest get(String contestId) {
+        return byId.get(contestId);
+    }
+
+    /**
+     * @return niemodyfikowalna lista konkursów w porządku id.
+     */
+    List<Contest> listed() {
+        return listed;
+    }
+
+    /**
+     * @return indeks id → konkurs (tylko do odczytu).
+     */
+    Map<String, CfContest> index() {
+        return Collections.unmodifiableMap(byId);
+    }
+
+    private static long toMillis(Optional<LocalDateTime> time) {
+        return time.map(t -> t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()).orElse(Long.MAX_VALUE);
+    }
+}
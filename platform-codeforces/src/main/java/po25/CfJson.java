@@ -0,0 +1,145 @@
+package po25;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Strumieniowe parsowanie dużych odpowiedzi CF API (contest.list, contest.standings).
+ * Obiekty są tworzone wprost z tokenów parsera, bez budowania drzewa JSON; pola, których
+ * nie używamy, są pomijane.
+ */
+final class CfJson {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private CfJson() {
+    }
+
+    /**
+     * Czyta odpowiedź contest.list, w kolejności API. Pomija konkursy bez daty rozpoczęcia.
+     *
+     * @throws PlatformException gdy status odpowiedzi jest inny niż OK.
+     */
+    static List<CfContest> readContestList(InputStream in, CodeforcesPlatform platform) throws IOException, PlatformException {
+        List<CfContest> contests = new ArrayList<>();
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            readEnvelope(parser, p -> {
+                expect(p.nextToken(), JsonToken.START_ARRAY, p);
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    CfContest contest = readContest(p, platform);
+                    if (contest != null) contests.add(contest);
+                }
+            });
+        }
+        return contests;
+    }
+
+    /**
+     * Czyta odpowiedź contest.standings i przekazuje indeks oraz nazwę każdego zadania.
+     * Obiekt "contest" i wiersze rankingu są pomijane bez materializowania.
+     *
+     * @throws PlatformException gdy status odpowiedzi jest inny niż OK.
+     */
+    static void readStandingsProblems(InputStream in, BiConsumer<String, String> problem) throws IOException, PlatformException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            readEnvelope(parser, p -> {
+                expect(p.nextToken(), JsonToken.START_OBJECT, p);
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    if (!"problems".equals(field)) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    expect(p.currentToken(), JsonToken.START_ARRAY, p);
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        String index = null;
+                        String name = null;
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String key = p.currentName();
+                            p.nextToken();
+                            if ("index".equals(key)) index = p.getText();
+                            else if ("name".equals(key)) name = p.getText();
+                            else p.skipChildren();
+                        }
+                        if (index != null) problem.accept(index, name);
+                    }
+                }
+            });
+        }
+    }
+
+    private interface ResultReader {
+        void read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Przechodzi po obiekcie {"status", "comment", "result"}; "result" czyta {@code result}.
+     */
+    private static void readEnvelope(JsonParser parser, ResultReader result) throws IOException, PlatformException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+        String status = null;
+        String comment = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if ("status".equals(field)) {
+                parser.nextToken();
+                status = parser.getText();
+            } else if ("comment".equals(field)) {
+                parser.nextToken();
+                comment = parser.getText();
+            } else if ("result".equals(field) && !"FAILED".equals(status)) {
+                result.read(parser);
+            } else {
+                parser.nextToken();
+                parser.skipChildren();
+            }
+        }
+        if (!"OK".equals(status)) {
+            throw new PlatformException("CF API error: " + (comment != null ? comment : status));
+        }
+    }
+
+    /**
+     * @return konkurs albo null, gdy nie ma daty rozpoczęcia.
+     */
+    private static CfContest readContest(JsonParser parser, CodeforcesPlatform platform) throws IOException {
+        String id = null;
+        String name = null;
+        String phase = null;
+        Long startSec = null;
+        Long durSec = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getText();
+                case "name" -> name = parser.getText();
+                case "phase" -> phase = parser.getText();
+                case "startTimeSeconds" -> startSec = parser.getLongValue();
+                case "durationSeconds" -> durSec = parser.getLongValue();
+                default -> parser.skipChildren();
+            }
+        }
+        if (id == null || phase == null || startSec == null || durSec == null) return null;
+
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochSecond(startSec), ZoneId.systemDefault());
+        return new CfContest(id, name, start, start.plusSeconds(durSec), phase, platform);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, JsonParser parser) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Niepoprawna odpowiedź CF API: oczekiwano " + expected + ", jest " + actual
+                    + " (" + parser.currentLocation() + ")");
+        }
+    }
+}
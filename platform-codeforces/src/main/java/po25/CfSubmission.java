@@ -7,51 +7,105 @@ import org.openqa.selenium.chrome.ChromeDriver;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public class CfSubmission implements Submission {
     private final CfTask task;
     private final String submissionId;
     private final String url;
     private final LocalDateTime time;
-    private String verdict;
-    private boolean completed;
+    /**
+     * Podmieniany w całości przez wątek odświeżający werdykt, więc czytelnik z innego wątku
+     * nigdy nie zobaczy {@code completed == true} z nieaktualnym werdyktem.
+     */
+    private volatile Status status = WAITING;
+
+    /**
+     * @param timeMillis  czas wykonania albo -1.
+     * @param memoryBytes zużyta pamięć albo -1.
+     */
+    private record Status(String verdict, Verdict verdictType, boolean completed, long timeMillis, long memoryBytes) {
+    }
+
+    private static final Status WAITING = new Status("Waiting", Verdict.QUEUED, false, -1, -1);
 
     protected CfSubmission(CfTask task, String id, String url, LocalDateTime time) {
         this.task = task;
         this.submissionId = id;
         this.url = url;
         this.time = time;
-        verdict = "Waiting";
-        completed = false;
+    }
+
+    /**
+     * Ustawia werdykt na podstawie pola "verdict" z odpowiedzi CF API.
+     * Brak werdyktu lub TESTING oznacza, że zgłoszenie wciąż czeka na ocenę.
+     *
+     * @param timeMillis  pole timeConsumedMillis albo -1.
+     * @param memoryBytes pole memoryConsumedBytes albo -1.
+     */
+    void applyApiVerdict(String apiVerdict, int passedTestCount, long timeMillis, long memoryBytes) {
+        if (apiVerdict == null || apiVerdict.isEmpty() || "TESTING".equals(apiVerdict)) {
+            Status current = status;
+            status = new Status("Waiting", "TESTING".equals(apiVerdict) ? Verdict.RUNNING : Verdict.QUEUED,
+                    false, current.timeMillis(), current.memoryBytes());
+            return;
+        }
+        status = new Status(describeApiVerdict(apiVerdict, passedTestCount + 1), Verdict.parse(apiVerdict),
+                true, timeMillis, memoryBytes);
+    }
+
+    /**
+     * Ustawia werdykt odczytany ze strony zgłoszenia (tekst w języku interfejsu Codeforces).
+     */
+    private void applyPageVerdict(String text, boolean completed) {
+        Status current = status;
+        status = new Status(text, completed ? Verdict.parse(text) : Verdict.QUEUED, completed,
+                current.timeMillis(), current.memoryBytes());
+    }
+
+    private static String describeApiVerdict(String apiVerdict, int test) {
+        return switch (apiVerdict) {
+            case "OK" -> "Accepted";
+            case "WRONG_ANSWER" -> "Wrong answer on test " + test;
+            case "TIME_LIMIT_EXCEEDED" -> "Time limit exceeded on test " + test;
+            case "MEMORY_LIMIT_EXCEEDED" -> "Memory limit exceeded on test " + test;
+            case "RUNTIME_ERROR" -> "Runtime error on test " + test;
+            case "IDLENESS_LIMIT_EXCEEDED" -> "Idleness limit exceeded on test " + test;
+            case "PRESENTATION_ERROR" -> "Presentation error on test " + test;
+            case "COMPILATION_ERROR" -> "Compilation error";
+            case "CHALLENGED" -> "Hacked";
+            case "SKIPPED" -> "Skipped";
+            case "PARTIAL" -> "Partial result";
+            case "FAILED", "CRASHED", "INPUT_PREPARATION_CRASHED" -> "Denial of judgement";
+            default -> apiVerdict;
+        };
     }
 
     private void loadVerdict(){
-        ChromeDriver driver = Browser.getChrome();
+        BrowserSession session = Browser.lease();
+        ChromeDriver driver = session.getDriver();
         try{
             driver.get(url);
             List<WebElement> verdicts = driver.findElements(By.className("verdict-rejected"));
             if(verdicts.size() > 0){
-                verdict = verdicts.get(0).getText();
-                completed = true;
+                applyPageVerdict(verdicts.get(0).getText(), true);
             }else{
                 verdicts = driver.findElements(By.className("verdict-accepted"));
                 if(verdicts.size() > 0){
-                    verdict = verdicts.get(0).getText();
-                    completed = true;
+                    applyPageVerdict(verdicts.get(0).getText(), true);
                 }else{
-                    System.out.println(driver.findElements(By.tagName("td")).get(4).getText());
                     if(driver.findElements(By.tagName("td")).get(4).getText().equals("Compilation error")){
-                        verdict = "Compilation error";
-                        completed = true;
+                        applyPageVerdict("Compilation error", true);
                         return;
                     }
-                    verdict = "Waiting";
+                    applyPageVerdict("Waiting", false);
                 }
             }
         }catch (Exception e){
-            verdict = "Unknown";
+            Status current = status;
+            status = new Status("Unknown", Verdict.UNKNOWN, current.completed(), current.timeMillis(), current.memoryBytes());
         }finally {
-            driver.quit();
+            session.close();
         }
     }
 
@@ -72,8 +126,40 @@ public class CfSubmission implements Submission {
 
     @Override
     public String getVerdict() {
-        if(!completed) this.loadVerdict();
-        return this.verdict;
+        if(!status.completed() && !this.task.contest.codeforces.getVerdictResolver().resolve(this)) this.loadVerdict();
+        return status.verdict();
+    }
+
+    boolean isCompleted() {
+        return status.completed();
+    }
+
+    @Override
+    public Verdict getVerdictType() {
+        if(!status.completed()) getVerdict();
+        return status.verdictType();
+    }
+
+    @Override
+    public String peekVerdict() {
+        return status.verdict();
+    }
+
+    @Override
+    public Verdict peekVerdictType() {
+        return status.verdictType();
+    }
+
+    @Override
+    public OptionalLong getExecutionTimeMillis() {
+        long timeMillis = status.timeMillis();
+        return timeMillis >= 0 ? OptionalLong.of(timeMillis) : OptionalLong.empty();
+    }
+
+    @Override
+    public OptionalLong getMemoryUsedBytes() {
+        long memoryBytes = status.memoryBytes();
+        return memoryBytes >= 0 ? OptionalLong.of(memoryBytes) : OptionalLong.empty();
     }
 
     @Override
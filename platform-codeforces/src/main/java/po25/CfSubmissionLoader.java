@@ -0,0 +1,158 @@
+package po25;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Wczytuje historię zgłoszeń przez oficjalne API Codeforces (user.status / contest.status)
+ * i rozdziela ją do map zgłoszeń w CfContest / CfTask.
+ * Ścieżka przez Selenium zostaje tylko jako fallback, gdy API nie odpowiada.
+ */
+class CfSubmissionLoader {
+    private static final int PAGE_SIZE = 1000;
+    private static final int INCREMENTAL_PAGE_SIZE = 50;
+
+    private final String apiBase;
+
+    /**
+     * @param apiBase adres CF API, z którego są pobierane zgłoszenia.
+     */
+    CfSubmissionLoader(String apiBase) {
+        this.apiBase = apiBase;
+    }
+
+    /**
+     * Pobiera całą historię użytkownika stronicowanymi wywołaniami user.status
+     * i przypisuje każde zgłoszenie do jego konkursu i zadania.
+     * Zgłoszenia do konkursów spoza katalogu (gym, niepubliczne) są pomijane.
+     *
+     * @param handle   handle użytkownika na Codeforces.
+     * @param contests katalog konkursów według id.
+     * @return wszystkie zgłoszenia według id zgłoszenia.
+     */
+    Map<String, CfSubmission> loadUserHistory(String handle, Map<String, CfContest> contests) throws PlatformException {
+        List<JSONObject> rows = fetchNewerThan("/user.status?handle=" + CfApi.encode(handle), 0, PAGE_SIZE);
+        return distribute(rows, contests, false);
+    }
+
+    /**
+     * Dociąga tylko zgłoszenia nowsze niż {@code highWaterMark}: user.status zwraca je od najnowszego,
+     * więc stronicowanie kończy się na pierwszym znanym id. Nowe zgłoszenia są dopisywane
+     * do istniejących map konkursów i zadań, pozostałe konkursy nie są ruszane.
+     *
+     * @param handle        handle użytkownika na Codeforces.
+     * @param contests      katalog konkursów według id.
+     * @param highWaterMark największe znane id zgłoszenia.
+     * @return tylko nowe zgłoszenia według id zgłoszenia.
+     */
+    Map<String, CfSubmission> loadUserHistorySince(String handle, Map<String, CfContest> contests, long highWaterMark) throws PlatformException {
+        List<JSONObject> rows = fetchNewerThan("/user.status?handle=" + CfApi.encode(handle), highWaterMark, INCREMENTAL_PAGE_SIZE);
+        return distribute(rows, contests, true);
+    }
+
+    /**
+     * Pobiera zgłoszenia użytkownika w jednym konkursie jednym wywołaniem contest.status.
+     *
+     * @param handle  handle użytkownika na Codeforces.
+     * @param contest konkurs do wczytania.
+     * @return zgłoszenia konkursu według id zgłoszenia.
+     */
+    Map<String, CfSubmission> loadContestHistory(String handle, CfContest contest) throws PlatformException {
+        JSONArray page = CfApi.call(apiBase, "/contest.status?contestId=" + contest.getId()
+                + "&handle=" + CfApi.encode(handle));
+        List<JSONObject> rows = new ArrayList<>();
+        for (int i = 0; i < page.length(); i++) {
+            rows.add(page.getJSONObject(i));
+        }
+        return distribute(rows, Collections.singletonMap(contest.getId(), contest), false);
+    }
+
+    /**
+     * Odpowiednik {@link #loadUserHistorySince} dla jednego konkursu (contest.status z from/count).
+     *
+     * @param handle        handle użytkownika na Codeforces.
+     * @param contest       konkurs do odświeżenia.
+     * @param highWaterMark największe znane id zgłoszenia w tym konkursie.
+     * @return tylko nowe zgłoszenia według id zgłoszenia.
+     */
+    Map<String, CfSubmission> loadContestHistorySince(String handle, CfContest contest, long highWaterMark) throws PlatformException {
+        List<JSONObject> rows = fetchNewerThan("/contest.status?contestId=" + contest.getId()
+                + "&handle=" + CfApi.encode(handle), highWaterMark, INCREMENTAL_PAGE_SIZE);
+        return distribute(rows, Collections.singletonMap(contest.getId(), contest), true);
+    }
+
+    /**
+     * Największe id w zbiorze zgłoszeń; 0, gdy zbiór jest pusty.
+     * Id na Codeforces rosną monotonicznie, więc to wyznacza znacznik "wszystko do tego miejsca mamy".
+     */
+    static long highWaterMark(Collection<String> submissionIds) {
+        long max = 0;
+        for (String id : submissionIds) {
+            try {
+                max = Math.max(max, Long.parseLong(id));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return max;
+    }
+
+    private List<JSONObject> fetchNewerThan(String methodAndQuery, long highWaterMark, int pageSize) throws PlatformException {
+        List<JSONObject> rows = new ArrayList<>();
+        for (int from = 1; ; from += pageSize) {
+            JSONArray page = CfApi.call(apiBase, methodAndQuery + "&from=" + from + "&count=" + pageSize);
+            for (int i = 0; i < page.length(); i++) {
+                JSONObject row = page.getJSONObject(i);
+                if (row.getLong("id") <= highWaterMark) return rows;
+                rows.add(row);
+            }
+            if (page.length() < pageSize) return rows;
+        }
+    }
+
+    private Map<String, CfSubmission> distribute(List<JSONObject> rows, Map<String, CfContest> contests, boolean merge) {
+        Map<CfContest, Map<String, CfSubmission>> byContest = new HashMap<>();
+        Map<CfTask, Map<String, CfSubmission>> byTask = new HashMap<>();
+        Map<String, CfSubmission> all = new TreeMap<>();
+
+        for (JSONObject row : rows) {
+            if (!row.has("contestId")) continue;
+            CfContest contest = contests.get(Long.toString(row.getLong("contestId")));
+            if (contest == null) continue;
+
+            JSONObject problem = row.getJSONObject("problem");
+            String index = problem.getString("index");
+            CfTask task = contest.taskFor(index, problem.optString("name", index));
+
+            String submissionId = Long.toString(row.getLong("id"));
+            LocalDateTime time = LocalDateTime.ofInstant(
+                    Instant.ofEpochSecond(row.getLong("creationTimeSeconds")),
+                    ZoneId.systemDefault());
+            CfSubmission submission = task.submissionFor(submissionId, time);
+            submission.applyApiVerdict(row.optString("verdict", null), row.optInt("passedTestCount", 0),
+                    row.optLong("timeConsumedMillis", -1), row.optLong("memoryConsumedBytes", -1));
+            if (!submission.isCompleted()) {
+                contest.codeforces.getVerdictResolver().track(submission);
+            }
+
+            byTask.computeIfAbsent(task, t -> new TreeMap<>()).put(submissionId, submission);
+            byContest.computeIfAbsent(contest, c -> new TreeMap<>()).put(submissionId, submission);
+            all.put(submissionId, submission);
+        }
+
+        if (merge) {
+            for (Map.Entry<CfContest, Map<String, CfSubmission>> entry : byContest.entrySet()) {
+                entry.getKey().mergeSubmissions(entry.getValue(), byTask);
+            }
+            return all;
+        }
+        for (CfContest contest : contests.values()) {
+            contest.setSubmissions(byContest.getOrDefault(contest, new TreeMap<>()), byTask);
+        }
+        return all;
+    }
+}
@@ -13,16 +13,27 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * Implementacja interfejsu Task dla Codeforces.
  * Pobiera i cache'uje pełną treść zadania wraz z przykładowymi danymi oraz limitami.
  */
 public class CfTask implements Task {
+    /**
+     * Treść pobierana przez przeglądarkę nie ma walidatorów (ETag/Last-Modified),
+     * więc wpis z cache jest odświeżany dopiero po tym czasie.
+     */
+    private static final Duration STATEMENT_FRESH_FOR = Duration.ofDays(7);
+    private static final Pattern LINE_BREAK = Pattern.compile("(?i)<br\\s*/?>");
+    private static final DateTimeFormatter SUBMISSION_TIME = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive().appendPattern("MMM/dd/yyyy HH:mm").toFormatter(Locale.ENGLISH);
+
     private final String name;
     private String id;
     private final String url;
@@ -33,9 +44,12 @@ public class CfTask implements Task {
     private String sampleOutput;
     private String timeLimit;
     private String memoryLimit;
-    private boolean loaded;
-    private boolean loadedSubmissions;
-    private Map<String, CfSubmission> submissions;
+    private volatile boolean loaded;
+    private volatile boolean loadedSubmissions;
+    /** Trwające wczytywania treści ("statement") i zgłoszeń ("submissions"). */
+    private final SingleFlight<String, Void> loads = new SingleFlight<>();
+    /** Zastępowana w całości (kopia przy zapisie) pod monitorem zadania; czytana bez blokady. */
+    private volatile Map<String, CfSubmission> submissions;
 
     protected CfTask(String id, String name, String url, CfContest contest) {
         this.id = id;
@@ -48,15 +62,48 @@ public class CfTask implements Task {
     }
 
     private void loadDetails() throws IOException {
-        ChromeDriver driver = Browser.getChrome();
+        loads.run("statement", IOException.class, () -> {
+            if (loaded) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("codeforces.statement.load").start();
+            try {
+                fetchDetails();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchDetails() throws IOException {
+        Optional<StatementCache.Entry> cached = StatementCache.getDefault().get(
+                this.contest.codeforces.getPlatformName(), this.contest.id, this.id);
+        if (cached.isPresent() && cached.get().isFresh(STATEMENT_FRESH_FOR)) {
+            StatementCache.Entry entry = cached.get();
+            this.content = entry.content();
+            this.sampleInput = entry.sampleInput();
+            this.sampleOutput = entry.sampleOutput();
+            this.timeLimit = entry.timeLimit();
+            this.memoryLimit = entry.memoryLimit();
+            loaded = true;
+            return;
+        }
+
+        BrowserSession session = Browser.lease();
+        ChromeDriver driver = session.getDriver();
         Document doc;
         try{
             driver.get(url);
-            doc = Jsoup.parse(driver.getPageSource());
-        }catch (Exception e){
-            throw e;
+            String page = driver.getPageSource();
+            ParseEvent event = ParseEvent.begin("html", url, page.length());
+            Metrics.Timer.Sample parse = Metrics.timer("codeforces.parse").start();
+            try {
+                doc = Jsoup.parse(page);
+            } finally {
+                parse.stop();
+                event.finish();
+            }
         } finally {
-            driver.quit();
+            session.close();
         }
         Element stmt = doc.selectFirst(".problem-statement");
         if (stmt == null) {
@@ -79,9 +126,19 @@ public class CfTask implements Task {
         this.sampleOutput = parseSample(stmt, ".sample-test .output");
 
         loaded = true;
+        StatementCache.getDefault().put(this.contest.codeforces.getPlatformName(), this.contest.id, this.id,
+                new StatementCache.Entry(content, null, null, sampleInput, sampleOutput,
+                        timeLimit, memoryLimit, null, null, System.currentTimeMillis()));
+    }
+
+    /**
+     * Czyta czas zgłoszenia z kolumny tabeli zgłoszeń, np. "Jun/12/2025 18:05UTC+2".
+     */
+    static LocalDateTime parseSubmissionTime(String text) {
+        return LocalDateTime.parse(text.replace("UTC+2", ""), SUBMISSION_TIME);
     }
 
-    private String parseSample(Element stmt, String selector) {
+    static String parseSample(Element stmt, String selector) {
         Element container = stmt.selectFirst(selector);
         if (container == null) return null;
 
@@ -97,9 +154,8 @@ public class CfTask implements Task {
         Element pre = container.selectFirst("pre");
         if (pre != null) {
             String raw = pre.html();
-            return raw
-                    .replaceAll("(?i)<br\\s*/?>", "\n")
-                    .replaceAll("&nbsp;", " ")
+            return LINE_BREAK.matcher(raw).replaceAll("\n")
+                    .replace("&nbsp;", " ")
                     .trim();
         }
 
@@ -158,10 +214,11 @@ public class CfTask implements Task {
 
     @Override
     public Submission submit(String path) throws PlatformException{
-        ChromeDriver driver = Browser.getChrome();
+        BrowserSession session = Browser.lease();
+        ChromeDriver driver = session.getDriver();
         String submissionId;
         try{
-            driver.get("https://codeforces.com/contest/" + this.contest.id + "/submit");
+            driver.get(this.contest.codeforces.url + "/contest/" + this.contest.id + "/submit");
             Select select = new Select(driver.findElement(By.name("submittedProblemIndex")));
             select.selectByVisibleText(this.getId() + " - " + this.getName());
             WebElement element = driver.findElement(By.id("sourceCodeTextarea"));
@@ -173,22 +230,69 @@ public class CfTask implements Task {
             driver.findElement(By.id("singlePageSubmitButton")).click();
             Thread.sleep(1000);
             submissionId = driver.findElement(By.className("highlighted-row")).findElement(By.className("view-source")).getText();
-            DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM/dd/yyyy HH:mm").toFormatter(Locale.ENGLISH);
-            LocalDateTime time = LocalDateTime.parse(driver.findElement(By.className("highlighted-row")).findElement(By.className("status-small")).getText().replace("UTC+2", ""), formatter);
-            this.submissions.put(submissionId, new CfSubmission(this, submissionId, "https://codeforces.com/contest/" + this.contest.id + "/submission/" + submissionId, time));
+            LocalDateTime time = parseSubmissionTime(driver.findElement(By.className("highlighted-row")).findElement(By.className("status-small")).getText());
+            CfSubmission submission = new CfSubmission(this, submissionId, this.contest.codeforces.url + "/contest/" + this.contest.id + "/submission/" + submissionId, time);
+            addSubmission(submission);
+            this.contest.codeforces.getVerdictResolver().track(submission);
         } catch (Exception e) {
             throw new PlatformException(e.getMessage());
         } finally {
-            driver.quit();
+            session.close();
         }
         return this.submissions.get(submissionId);
     }
 
+    /**
+     * Wczytuje zgłoszenia przez CF API (jedno wywołanie contest.status dla całego konkursu),
+     * a gdy API zawiedzie - przez przeglądarkę.
+     */
     protected void loadSubmissions() throws PlatformException {
-        ChromeDriver driver = Browser.getChrome();
+        loads.run("submissions", PlatformException.class, () -> {
+            if (loadedSubmissions) return null;
+            try {
+                this.contest.loadSubmissionsFromApi();
+                if (this.loadedSubmissions) return null;
+            } catch (PlatformException e) {
+                System.err.println("Codeforces: " + e.getMessage() + " - falling back to the browser.");
+            }
+            loadSubmissionsWithBrowser();
+            return null;
+        });
+    }
+
+    /**
+     * Zwraca istniejące zgłoszenie o danym id albo tworzy nowe (bez dodawania go do mapy).
+     */
+    CfSubmission submissionFor(String submissionId, LocalDateTime time) {
+        CfSubmission existing = this.submissions.get(submissionId);
+        if (existing != null) return existing;
+        return new CfSubmission(this, submissionId, this.contest.codeforces.url + "/contest/" + this.contest.id + "/submission/" + submissionId, time);
+    }
+
+    synchronized void setSubmissions(Map<String, CfSubmission> newSubmissions) {
+        this.submissions = newSubmissions;
+        this.loadedSubmissions = true;
+    }
+
+    synchronized void mergeSubmissions(Map<String, CfSubmission> newSubmissions) {
+        if (!this.loadedSubmissions) return;
+        Map<String, CfSubmission> merged = new TreeMap<>(this.submissions);
+        merged.putAll(newSubmissions);
+        this.submissions = merged;
+    }
+
+    private synchronized void addSubmission(CfSubmission submission) {
+        Map<String, CfSubmission> added = new TreeMap<>(this.submissions);
+        added.put(submission.getSubmissionId(), submission);
+        this.submissions = added;
+    }
+
+    protected void loadSubmissionsWithBrowser() throws PlatformException {
+        BrowserSession session = Browser.lease();
+        ChromeDriver driver = session.getDriver();
         try{
             Map<String, CfSubmission> newSubmissions = new TreeMap<>();
-            driver.get("https://codeforces.com/contest/" + this.contest.id + "/status");
+            driver.get(this.contest.codeforces.url + "/contest/" + this.contest.id + "/status");
             Select select = new Select(driver.findElement(By.name("frameProblemIndex")));
             select.selectByVisibleText(this.getId() + " - " + this.getName());
             WebElement element = driver.findElement(By.id("participantSubstring"));
@@ -201,12 +305,11 @@ public class CfTask implements Task {
                 elements = driver.findElements(By.className("highlighted-row"));
                 for(WebElement submission: elements){
                     String submissionId = submission.findElement(By.className("view-source")).getText();
-                    DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM/dd/yyyy HH:mm").toFormatter(Locale.ENGLISH);
-                    LocalDateTime time = LocalDateTime.parse(submission.findElement(By.className("status-small")).getText().replace("UTC+2", ""), formatter);
+                    LocalDateTime time = parseSubmissionTime(submission.findElement(By.className("status-small")).getText());
                     if(this.submissions.containsKey(submissionId)){
                         newSubmissions.put(submissionId, this.submissions.get(submissionId));
                     }else{
-                        newSubmissions.put(submissionId, new CfSubmission(this, submissionId, "https://codeforces.com/contest/" + this.contest.id + "/submission/" + submissionId, time));
+                        newSubmissions.put(submissionId, new CfSubmission(this, submissionId, this.contest.codeforces.url + "/contest/" + this.contest.id + "/submission/" + submissionId, time));
                     }
                 }
                 driver.get(driver.findElements(By.className("arrow")).get(2).getAttribute("href").toString());
@@ -215,12 +318,11 @@ public class CfTask implements Task {
                     elements = driver.findElements(By.className("highlighted-row"));
                     for(WebElement submission: elements){
                         String submissionId = submission.findElement(By.className("view-source")).getText();
-                        DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM/dd/yyyy HH:mm").toFormatter(Locale.ENGLISH);
-                        LocalDateTime time = LocalDateTime.parse(submission.findElement(By.className("status-small")).getText().replace("UTC+2", ""), formatter);
+                        LocalDateTime time = parseSubmissionTime(submission.findElement(By.className("status-small")).getText());
                         if(this.submissions.containsKey(submissionId)){
                             newSubmissions.put(submissionId, this.submissions.get(submissionId));
                         }else{
-                            newSubmissions.put(submissionId, new CfSubmission(this, submissionId, "https://codeforces.com/contest/" + this.contest.id + "/submission/" + submissionId, time));
+                            newSubmissions.put(submissionId, new CfSubmission(this, submissionId, this.contest.codeforces.url + "/contest/" + this.contest.id + "/submission/" + submissionId, time));
                         }
                     }
                     driver.get(driver.findElements(By.className("arrow")).get(3).getAttribute("href").toString());
@@ -230,21 +332,19 @@ public class CfTask implements Task {
                 elements = driver.findElements(By.className("highlighted-row"));
                 for(WebElement submission: elements){
                     String submissionId = submission.findElement(By.className("view-source")).getText();
-                    DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM/dd/yyyy HH:mm").toFormatter(Locale.ENGLISH);
-                    LocalDateTime time = LocalDateTime.parse(submission.findElement(By.className("status-small")).getText().replace("UTC+2", ""), formatter);
+                    LocalDateTime time = parseSubmissionTime(submission.findElement(By.className("status-small")).getText());
                     if(this.submissions.containsKey(submissionId)){
                         newSubmissions.put(submissionId, this.submissions.get(submissionId));
                     }else{
-                        newSubmissions.put(submissionId, new CfSubmission(this, submissionId,  "https://codeforces.com/contest/" + this.contest.id + "/submission/" + submissionId, time));
+                        newSubmissions.put(submissionId, new CfSubmission(this, submissionId,  this.contest.codeforces.url + "/contest/" + this.contest.id + "/submission/" + submissionId, time));
                     }
                 }
             }
-            this.submissions = newSubmissions;
-            this.loadedSubmissions = true;
+            setSubmissions(newSubmissions);
         } catch (Exception e) {
             throw new PlatformException(e.getMessage());
         } finally {
-            driver.quit();
+            session.close();
         }
     }
 
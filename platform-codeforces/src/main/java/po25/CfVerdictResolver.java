@@ -0,0 +1,123 @@
+package po25;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.*;
+
+/**
+ * Hurtowe rozstrzyganie werdyktów oczekujących zgłoszeń.
+ * Zbiera id wszystkich zgłoszeń bez werdyktu i na jeden "tick" wykonuje jedno zapytanie
+ * contest.status na konkurs, aktualizując wszystkie CfSubmission w miejscu.
+ * <p>
+ * Zapytanie jest wykonywane poza monitorem: równoczesne odświeżenia tego samego konkursu
+ * czekają na jedno wspólne (przez {@link SingleFlight}), a odświeżenia różnych konkursów
+ * nie blokują się nawzajem.
+ */
+class CfVerdictResolver {
+    /** Odpowiedź młodsza niż ten odstęp jest współdzielona przez wszystkie zgłoszenia konkursu. */
+    private static final long MIN_REFRESH_INTERVAL_MS = 2_000;
+
+    private final CodeforcesPlatform codeforces;
+    private final Map<String, Map<String, CfSubmission>> pending = new HashMap<>();
+    private final Map<String, Long> lastRefresh = new HashMap<>();
+    /** Id zgłoszeń, które objęło ostatnie odświeżenie konkursu. */
+    private final Map<String, Set<String>> lastRefreshed = new HashMap<>();
+    private final SingleFlight<String, Void> refreshes = new SingleFlight<>();
+
+    CfVerdictResolver(CodeforcesPlatform codeforces) {
+        this.codeforces = codeforces;
+    }
+
+    /**
+     * Dodaje zgłoszenie do zbioru oczekujących i odświeża jego konkurs, chyba że zrobiono to
+     * przed chwilą i to zgłoszenie było w nim uwzględnione (wtedy wynik poprzedniego zapytania
+     * już został zastosowany).
+     *
+     * @return false, gdy API nie jest dostępne i trzeba użyć przeglądarki.
+     */
+    boolean resolve(CfSubmission submission) {
+        String contestId = submission.getContestId().orElseThrow();
+        track(submission);
+        try {
+            // drugi raz tylko wtedy, gdy dołączyliśmy do odświeżenia rozpoczętego przed track()
+            for (int attempt = 0; attempt < 2 && !recentlyRefreshed(contestId, submission); attempt++) {
+                refreshContest(contestId);
+            }
+            return true;
+        } catch (PlatformException e) {
+            System.err.println("Codeforces: " + e.getMessage());
+            return false;
+        }
+    }
+
+    synchronized void track(CfSubmission submission) {
+        pending.computeIfAbsent(submission.getContestId().orElseThrow(), c -> new HashMap<>())
+                .put(submission.getSubmissionId(), submission);
+    }
+
+    /**
+     * Odświeża wszystkie śledzone zgłoszenia - jedno zapytanie na konkurs.
+     */
+    void refreshPending() throws PlatformException {
+        List<String> contestIds;
+        synchronized (this) {
+            contestIds = new ArrayList<>(pending.keySet());
+        }
+        for (String contestId : contestIds) {
+            refreshContest(contestId);
+        }
+    }
+
+    private synchronized boolean recentlyRefreshed(String contestId, CfSubmission submission) {
+        if (submission.isCompleted()) return true;
+        Long last = lastRefresh.get(contestId);
+        return last != null && System.currentTimeMillis() - last < MIN_REFRESH_INTERVAL_MS
+                && lastRefreshed.getOrDefault(contestId, Set.of()).contains(submission.getSubmissionId());
+    }
+
+    private void refreshContest(String contestId) throws PlatformException {
+        refreshes.run(contestId, PlatformException.class, () -> {
+            fetchContest(contestId);
+            return null;
+        });
+    }
+
+    private void fetchContest(String contestId) throws PlatformException {
+        Map<String, CfSubmission> waiting;
+        synchronized (this) {
+            Map<String, CfSubmission> tracked = pending.get(contestId);
+            if (tracked == null || tracked.isEmpty()) {
+                pending.remove(contestId);
+                return;
+            }
+            waiting = new HashMap<>(tracked);
+        }
+        if (codeforces.username == null) {
+            throw new PlatformException("Not logged in to Codeforces. Please login first.");
+        }
+
+        JSONArray rows = CfApi.call(codeforces.apiBase, "/contest.status?contestId=" + contestId
+                + "&handle=" + CfApi.encode(codeforces.username));
+
+        synchronized (this) {
+            lastRefresh.put(contestId, System.currentTimeMillis());
+            lastRefreshed.put(contestId, waiting.keySet());
+            for (int i = 0; i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                CfSubmission submission = waiting.get(Long.toString(row.getLong("id")));
+                if (submission != null) {
+                    submission.applyApiVerdict(row.optString("verdict", null), row.optInt("passedTestCount", 0),
+                        row.optLong("timeConsumedMillis", -1), row.optLong("memoryConsumedBytes", -1));
+                }
+            }
+            Map<String, CfSubmission> tracked = pending.get(contestId);
+            if (tracked != null) {
+                tracked.values().removeIf(CfSubmission::isCompleted);
+                if (tracked.isEmpty()) {
+                    pending.remove(contestId);
+                }
+            }
+        }
+    }
+}
@@ -1,14 +1,15 @@
 package po25;
 
-import org.jsoup.Jsoup;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.openqa.selenium.*;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.support.ui.Wait;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.*;
 import java.util.*;
 
@@ -16,14 +17,37 @@ import java.util.*;
  * Implementacja interfejsu Platform dla Codeforces.
  */
 public class CodeforcesPlatform implements Platform {
-    protected static final String API_BASE = "https://codeforces.com/api";
-    private static final String url = "https://codeforces.com";
+    /** Adres Codeforces, zmieniany przez -Ddccp.codeforces.baseUrl (np. na lokalny serwer nagrań). */
+    public static final String DEFAULT_BASE_URL = "https://codeforces.com";
+    protected final String url;
+    protected final String apiBase;
     private boolean loggedIn = false;
-    private boolean loadedSubmissions = false;
-    private boolean loaded = false;
-    protected String username;
-    private Map<String, CfContest> contests = new TreeMap<>();
-    private Map<String, CfSubmission> submissions = new TreeMap<>();
+    private volatile boolean loadedSubmissions = false;
+    /**
+     * Nazwa użytkownika z ostatniego logowania. Ciasteczka zostają w profilu przeglądarki,
+     * a nazwa w pliku {@code codeforces.handle}, więc nowy proces od razu pobiera historię przez API.
+     */
+    protected volatile String username;
+    private final Path handleFile = AbstractPlatform.getConfigDirectory().resolve("codeforces.handle");
+    private volatile CfContestCatalog catalog;
+    private Duration catalogTtl = CfContestCatalog.DEFAULT_TTL;
+    private volatile Map<String, CfSubmission> submissions = new TreeMap<>();
+    /** Trwające wczytywania listy konkursów ("contests") i historii zgłoszeń ("submissions"). */
+    private final SingleFlight<String, Void> loads = new SingleFlight<>();
+    private final CfVerdictResolver verdictResolver = new CfVerdictResolver(this);
+
+    public CodeforcesPlatform() {
+        this(System.getProperty("dccp.codeforces.baseUrl", DEFAULT_BASE_URL));
+    }
+
+    /**
+     * @param baseUrl adres serwisu bez końcowego ukośnika; API jest pod {@code baseUrl + "/api"}.
+     */
+    public CodeforcesPlatform(String baseUrl) {
+        this.url = baseUrl;
+        this.apiBase = baseUrl + "/api";
+        this.username = readHandle();
+    }
 
     @Override
     public String getPlatformName() {
@@ -35,21 +59,24 @@ public class CodeforcesPlatform implements Platform {
         String stringPassword = new String(password);
         Arrays.fill(password, ' ');
 
-        ChromeDriver driver = Browser.getChrome();
-        this.username = username;
-        driver.get(url + "/enter");
-        if(!driver.getTitle().contains("Codeforces")) {
-            driver.quit();
-            throw new RobotCheckException("You have to pass robot check");
+        BrowserSession session = Browser.lease();
+        ChromeDriver driver = session.getDriver();
+        try {
+            this.username = username;
+            driver.get(url + "/enter");
+            if(!driver.getTitle().contains("Codeforces")) {
+                throw new RobotCheckException("You have to pass robot check");
+            }
+            Wait<WebDriver> wait = new WebDriverWait(driver, Duration.ofSeconds(5));
+            wait.until(d -> !driver.findElements(By.tagName("form")).isEmpty());
+            driver.findElement(By.id("handleOrEmail")).sendKeys(username);
+            driver.findElement(By.id("password")).sendKeys(stringPassword);
+            driver.findElement(By.className("submit")).click();
+        } finally {
+            session.close();
         }
-        Wait<WebDriver> wait = new WebDriverWait(driver, Duration.ofSeconds(5));
-        wait.until(d -> !driver.findElements(By.tagName("form")).isEmpty());
-        driver.findElement(By.id("handleOrEmail")).sendKeys(username);
-        driver.findElement(By.id("password")).sendKeys(stringPassword);
-        driver.findElement(By.className("submit")).click();
-
-        driver.quit();
         loggedIn = true;
+        saveHandle(username);
     }
 
     @Override
@@ -59,7 +86,8 @@ public class CodeforcesPlatform implements Platform {
 
     @Override
     public void logout() throws PlatformException  {
-        ChromeDriver driver = Browser.getChrome();
+        BrowserSession session = Browser.lease();
+        ChromeDriver driver = session.getDriver();
         try{
             driver.get(url);
             Thread.sleep(1000);
@@ -67,63 +95,108 @@ public class CodeforcesPlatform implements Platform {
         }catch (Exception e){
             throw new PlatformException(e.getMessage());
         } finally {
-            driver.quit();
+            session.close();
         }
         loggedIn = false;
+        this.username = null;
+        saveHandle(null);
     }
 
-    private void loadContests() throws PlatformException {
+    private String readHandle() {
         try {
-            Map<String, CfContest> newContests = new TreeMap<>();
-            String url = API_BASE + "/contest.list?gym=false";
-            String body = Jsoup.connect(url)
-                    .ignoreContentType(true)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10_000)
-                    .execute()
-                    .body();
-
-            JSONObject root = new JSONObject(body);
-            if (!"OK".equals(root.getString("status"))) {
-                throw new PlatformException("CF API error: " + root);
+            if (!Files.exists(handleFile)) return null;
+            String handle = Files.readString(handleFile, StandardCharsets.UTF_8).trim();
+            return handle.isEmpty() ? null : handle;
+        } catch (IOException e) {
+            System.err.println("Codeforces: Nie udało się odczytać " + handleFile + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Zapisuje nazwę użytkownika obok sesji innych platform; null usuwa plik.
+     * Błąd zapisu tylko ostrzega: bez pliku historia w nowym procesie idzie przez przeglądarkę.
+     */
+    private void saveHandle(String handle) {
+        try {
+            if (handle == null) {
+                Files.deleteIfExists(handleFile);
+            } else {
+                Files.createDirectories(handleFile.getParent());
+                Files.writeString(handleFile, handle, StandardCharsets.UTF_8);
             }
+        } catch (IOException e) {
+            System.err.println("Codeforces: Nie udało się zapisać " + handleFile + " (" + e.getMessage() + ")");
+        }
+    }
 
-            JSONArray arr = root.getJSONArray("result");
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject c = arr.getJSONObject(i);
-                String id       = Long.toString(c.getLong("id"));
-                String name   = c.getString("name");
-                String phase  = c.getString("phase");
-                long startSec = c.getLong("startTimeSeconds");
-                int  durSec   = c.getInt("durationSeconds");
-
-                ZonedDateTime start = ZonedDateTime.ofInstant(
-                        Instant.ofEpochSecond(startSec),
-                        ZoneId.systemDefault());
-                ZonedDateTime end   = start.plusSeconds(durSec);
-
-                if ("BEFORE".equals(phase) || "FINISHED".equals(phase)) {
-                    newContests.put(id, new CfContest(id, name, start, end, this));
-                }
+    private void loadContests() throws PlatformException {
+        loads.run("contests", PlatformException.class, () -> {
+            if (catalog != null && catalog.isFresh(System.currentTimeMillis())) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("codeforces.contests.load").start();
+            try {
+                fetchContests();
+            } finally {
+                sample.stop();
             }
-            this.contests = newContests;
-            this.loaded = false;
+            return null;
+        });
+    }
+
+    private void fetchContests() throws PlatformException {
+        String url = apiBase + "/contest.list?gym=false";
+        try (InputStream body = HttpTransport.getDefault().request(url)
+                .timeout(Duration.ofSeconds(10))
+                .ignoreHttpErrors()
+                .stream()) {
+            ParseEvent event = ParseEvent.begin("json", url, -1);
+            List<CfContest> contests;
+            try {
+                contests = CfJson.readContestList(body, this);
+            } finally {
+                event.finish();
+            }
+            this.catalog = CfContestCatalog.of(contests, this.catalog, this.catalogTtl, System.currentTimeMillis());
         } catch (IOException e) {
             throw new PlatformException("Błąd sieciowy przy pobieraniu listy konkursów", e);
         }
     }
 
+    /**
+     * Zwraca aktualną listę konkursów, pobierając ją tylko gdy migawka wygasła.
+     */
+    private CfContestCatalog catalog() throws PlatformException {
+        if (this.catalog == null || !this.catalog.isFresh(System.currentTimeMillis())) {
+            Metrics.counter("cache.contests.miss").increment();
+            loadContests();
+        } else {
+            Metrics.counter("cache.contests.hit").increment();
+        }
+        return this.catalog;
+    }
+
+    /**
+     * Ustawia maksymalny czas życia listy konkursów; nadchodzące i trwające konkursy
+     * i tak wymuszają wcześniejsze odświeżenie przy zmianie fazy. Obowiązuje od następnego
+     * pobrania listy.
+     */
+    public void setContestCatalogTtl(Duration ttl) {
+        this.catalogTtl = Objects.requireNonNull(ttl);
+    }
+
     @Override
     public List<Contest> getAllContests() throws PlatformException {
-        if(!loaded) loadContests();
-        return new ArrayList<>(contests.values());
+        return new ArrayList<>(catalog().listed());
+    }
+
+    @Override
+    public Collection<Contest> getContestView() throws PlatformException {
+        return catalog().listed();
     }
 
     @Override
     public Optional<Contest> getContestById(String contestId) throws PlatformException {
-        return getAllContests().stream()
-                .filter(c -> c.getId().equals(contestId))
-                .findFirst();
+        return Optional.ofNullable(catalog().get(contestId));
     }
 
     @Override
@@ -133,22 +206,105 @@ public class CodeforcesPlatform implements Platform {
 
     @Override
     public Submission getSubmission(String submissionId) throws PlatformException{
-        if(!loadedSubmissions) loadSubmissions();
+        if(!loadedSubmissions) loadSubmissions(false);
         return this.submissions.get(submissionId);
     }
 
     @Override
     public List<Submission> getSubmissionHistory() throws PlatformException{
-        if(!loadedSubmissions) loadSubmissions();
+        if(!loadedSubmissions) loadSubmissions(false);
         return new ArrayList<>(submissions.values());
     }
 
-    private void loadSubmissions() throws PlatformException {
-        if(!this.loaded) loadContests();
+    CfVerdictResolver getVerdictResolver() {
+        return verdictResolver;
+    }
+
+    /**
+     * Odświeża werdykty wszystkich oczekujących zgłoszeń jednym zapytaniem API na konkurs.
+     */
+    public void refreshPendingVerdicts() throws PlatformException {
+        verdictResolver.refreshPending();
+    }
+
+    /**
+     * Odświeża werdykty podanych zgłoszeń jednym zapytaniem contest.status na konkurs.
+     * Gdy API jest niedostępne, werdykty są pobierane pojedynczo przez przeglądarkę.
+     */
+    @Override
+    public Map<String, Verdict> refreshVerdicts(Collection<? extends Submission> submissions) throws PlatformException {
+        boolean anyPending = false;
+        for (Submission submission : submissions) {
+            if (submission instanceof CfSubmission cf && !cf.isCompleted()) {
+                verdictResolver.track(cf);
+                anyPending = true;
+            }
+        }
+        boolean refreshed = false;
+        if (anyPending) {
+            try {
+                verdictResolver.refreshPending();
+                refreshed = true;
+            } catch (PlatformException e) {
+                System.err.println("Codeforces: " + e.getMessage() + " - falling back to the browser.");
+            }
+        }
+        Map<String, Verdict> verdicts = new LinkedHashMap<>();
+        for (Submission submission : submissions) {
+            verdicts.put(submission.getSubmissionId(), refreshed && submission instanceof CfSubmission cf
+                    ? cf.peekVerdictType()
+                    : submission.getVerdictType());
+        }
+        return verdicts;
+    }
+
+    /**
+     * Odświeża historię zgłoszeń. Po pierwszym wczytaniu pobiera przez API tylko zgłoszenia
+     * nowsze niż największe znane id (stronicowanie user.status kończy się na znanym zgłoszeniu).
+     */
+    public void refreshSubmissions() throws PlatformException {
+        loadSubmissions(true);
+    }
+
+    /**
+     * @param refresh pobiera historię nawet wtedy, gdy jest już wczytana.
+     */
+    private void loadSubmissions(boolean refresh) throws PlatformException {
+        loads.run("submissions", PlatformException.class, () -> {
+            if (!refresh && loadedSubmissions) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("codeforces.history.load").start();
+            try {
+                fetchSubmissions();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchSubmissions() throws PlatformException {
+        Map<String, CfContest> contests = catalog().index();
+        if (this.username != null) {
+            try {
+                CfSubmissionLoader loader = new CfSubmissionLoader(this.apiBase);
+                if (this.loadedSubmissions) {
+                    Map<String, CfSubmission> merged = new TreeMap<>(this.submissions);
+                    merged.putAll(loader.loadUserHistorySince(this.username, contests,
+                            CfSubmissionLoader.highWaterMark(this.submissions.keySet())));
+                    this.submissions = merged;
+                } else {
+                    this.submissions = loader.loadUserHistory(this.username, contests);
+                    this.loadedSubmissions = true;
+                }
+                return;
+            } catch (PlatformException e) {
+                System.err.println("Codeforces: " + e.getMessage() + " - falling back to the browser.");
+            }
+        }
         Map<String, CfSubmission> newSubmissions = new TreeMap<>();
         this.loadedSubmissions = false;
         for(CfContest contest: contests.values()){
-            contest.loadSubmissions();
+            contest.loadSubmissionsWithBrowser();
             for(Submission submission: contest.getSubmissionHistory()){
                 String submissionId = submission.getSubmissionId();
                 if(!submissions.containsKey(submissionId)){
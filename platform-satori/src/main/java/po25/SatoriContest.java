@@ -1,6 +1,5 @@
 package po25;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -8,8 +7,6 @@ import org.jsoup.select.Elements;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class SatoriContest implements Contest {
@@ -17,10 +14,12 @@ public class SatoriContest implements Contest {
     private final String title;
     protected final SatoriPlatform satori;
     private final String description;
-    private Map<String, SatoriTask> tasks;
-    private boolean loaded;
-    private boolean loadedSubmissions;
-    private Map<String, SatoriSubmission> submissions;
+    private volatile Map<String, SatoriTask> tasks;
+    private volatile boolean loaded;
+    private volatile boolean loadedSubmissions;
+    private volatile Map<String, SatoriSubmission> submissions;
+    /** Loads of the task list ("tasks") and of the submissions ("submissions") in progress. */
+    private final SingleFlight<String, Void> loads = new SingleFlight<>();
 
     protected SatoriContest(String contestId, String title, String description, SatoriPlatform satori) {
         this.contestId = contestId;
@@ -44,16 +43,22 @@ public class SatoriContest implements Contest {
     }
 
     public void reload() throws PlatformException, ConnectionException, LoginException {
-        this.loadTasks();
+        this.loadTasks(true);
         this.loadSubmissions();
     }
 
     @Override
     public List<Task> getTasks() throws PlatformException, ConnectionException, LoginException {
-        if (!loaded) loadTasks();
+        if (!loaded) loadTasks(false);
         return new ArrayList<>(tasks.values());
     }
 
+    @Override
+    public Collection<Task> getTaskView() throws PlatformException, ConnectionException, LoginException {
+        if (!loaded) loadTasks(false);
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
     @Override
     public Optional<String> getDescription() {
         return Optional.of(this.description);
@@ -62,7 +67,7 @@ public class SatoriContest implements Contest {
     @Override
     public Optional<Task> getTaskById(String taskId) throws PlatformException, ConnectionException, LoginException {
         if (!loaded) {
-            loadTasks();
+            loadTasks(false);
         }
 
         return Optional.ofNullable(this.tasks.get(taskId));
@@ -85,11 +90,28 @@ public class SatoriContest implements Contest {
 
     @Override
     public List<Submission> getSubmissionHistory() throws PlatformException, ConnectionException, LoginException {
-        if (!loadedSubmissions) loadSubmissions();
+        if (!loadedSubmissions) loadSubmissions(false);
         return new ArrayList<>(submissions.values());
     }
 
-    private void loadTasks() throws PlatformException, ConnectionException, LoginException {
+    /**
+     * @param refresh fetch the task list even if it is already loaded; otherwise a caller that
+     *                waited for a load that has just finished does not start another one.
+     */
+    private void loadTasks(boolean refresh) throws PlatformException, ConnectionException, LoginException {
+        loads.run("tasks", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+            if (!refresh && loaded) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("satori.tasks.load").start();
+            try {
+                fetchTasks();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchTasks() throws PlatformException, ConnectionException, LoginException {
         this.loaded = false;
         Map<String, SatoriTask> newTasksMap = new TreeMap<>();
         if (!this.satori.isSessionValid()){
@@ -98,107 +120,169 @@ public class SatoriContest implements Contest {
 
         try {
             String contestProblemsPageUrl = this.satori.baseApiUrl + "/contest/" + this.contestId + "/problems";
-            Document doc = Jsoup.connect(contestProblemsPageUrl)
-                    .cookie("satori_token", this.satori.getRequiredToken())
-                    .timeout(30000)
-                    .get();
+            Document doc = this.satori.fetchDocument(contestProblemsPageUrl, 30000);
+
 
+            for (TaskRow row : parseTaskRows(doc, this.contestId)) {
+                SatoriTask taskInstance = this.tasks.get(row.id);
+                if (taskInstance == null) {
+                    taskInstance = new SatoriTask(row.id, row.code, row.title, row.url, this);
+                }
+                newTasksMap.put(row.id, taskInstance);
+            }
 
-            Elements problemRows = doc.select("tbody > tr");
+            this.tasks = newTasksMap;
+            this.loaded = true;
 
-            for (Element row : problemRows) {
-                Elements cells = row.children();
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ConnectionException("Failed to load tasks for Satori contest " + this.contestId
+                    + " due to network or parsing error: " + e.getMessage(), e);
+        }
+    }
 
+    /**
+     * A task as listed in a row of the contest's problems table.
+     */
+    static final class TaskRow {
+        final String id;
+        final String code;
+        final String title;
+        final String url;
+
+        TaskRow(String id, String code, String title, String url) {
+            this.id = id;
+            this.code = code;
+            this.title = title;
+            this.url = url;
+        }
+    }
 
-                if (cells.isEmpty() || "Code".equalsIgnoreCase(cells.get(0).text().trim())) {
-                    continue;
-                }
+    /**
+     * Reads the tasks from the problems page of a contest, in page order. Malformed rows are
+     * reported and skipped.
+     */
+    static List<TaskRow> parseTaskRows(Document doc, String contestId) {
+        List<TaskRow> rows = new ArrayList<>();
+        Elements problemRows = doc.select("tbody > tr");
 
-                if (cells.size() < 2) {
-                    System.err.println("SatoriContest: Skipping malformed task row (not enough cells) in contest "
-                            + this.contestId + ": " + row.html());
-                    continue;
-                }
+        for (Element row : problemRows) {
+            Elements cells = row.children();
 
-                Element linkElement = row.select("a[href]").first();
-                if (linkElement == null) {
-                    System.err.println("SatoriContest: No link found in task row for contest "
-                            + this.contestId + ": " + row.html());
-                    continue;
-                }
 
-                String problemHref = linkElement.attr("href");
-                String[] hrefParts = problemHref.split("/");
+            if (cells.isEmpty() || "Code".equalsIgnoreCase(cells.get(0).text().trim())) {
+                continue;
+            }
 
-                if (hrefParts.length <= 4) {
-                    System.err.println("SatoriContest: Could not parse taskId from href '" + problemHref
-                            + "' in contest " + this.contestId + ". Expected at least 5 parts after split.");
-                    continue;
-                }
-                String taskId = hrefParts[4];
+            if (cells.size() < 2) {
+                System.err.println("SatoriContest: Skipping malformed task row (not enough cells) in contest "
+                        + contestId + ": " + row.html());
+                continue;
+            }
 
-                String taskCode = cells.get(0).text().trim();
-                String taskTitle = cells.get(1).text().trim();
-                String taskUrl = linkElement.absUrl("href");
+            Element linkElement = row.select("a[href]").first();
+            if (linkElement == null) {
+                System.err.println("SatoriContest: No link found in task row for contest "
+                        + contestId + ": " + row.html());
+                continue;
+            }
 
-                SatoriTask taskInstance = this.tasks.get(taskId);
-                if (taskInstance == null) {
-                    taskInstance = new SatoriTask(taskId, taskCode, taskTitle, taskUrl, this);
-                }
+            String problemHref = linkElement.attr("href");
+            String[] hrefParts = problemHref.split("/");
 
-                newTasksMap.put(taskId, taskInstance);
+            if (hrefParts.length <= 4) {
+                System.err.println("SatoriContest: Could not parse taskId from href '" + problemHref
+                        + "' in contest " + contestId + ". Expected at least 5 parts after split.");
+                continue;
             }
+            String taskId = hrefParts[4];
 
-            this.tasks = newTasksMap;
-            this.loaded = true;
+            String taskCode = cells.get(0).text().trim();
+            String taskTitle = cells.get(1).text().trim();
+            String taskUrl = linkElement.absUrl("href");
+
+            rows.add(new TaskRow(taskId, taskCode, taskTitle, taskUrl));
+        }
+        return rows;
+    }
+
+    /**
+     * Refreshes the verdicts of all pending submissions in this contest with a single request
+     * for the newest rows of the contest's results table.
+     */
+    public void refreshPendingVerdicts() throws PlatformException, ConnectionException, LoginException {
+        Map<String, SatoriSubmission> pending = new HashMap<>();
+        for (SatoriTask task : this.tasks.values()) {
+            task.collectPending(pending);
+        }
+        refreshVerdicts(pending);
+    }
 
+    /**
+     * Refreshes the given pending submissions of this contest with a single results page request.
+     *
+     * @param pending pending submissions keyed by submission id.
+     */
+    void refreshVerdicts(Map<String, SatoriSubmission> pending) throws PlatformException, ConnectionException, LoginException {
+        if (pending.isEmpty()) return;
+        try {
+            String resultsUrl = this.satori.baseApiUrl + "/contest/" + this.contestId
+                    + "/results?results_limit=" + SatoriSubmission.PENDING_RESULTS_LIMIT;
+            Document doc = this.satori.fetchDocument(resultsUrl, 30000);
+            SatoriSubmission.applyResults(doc.select("table").select("tr"), pending);
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
         } catch (IOException e) {
-            throw new ConnectionException("Failed to load tasks for Satori contest " + this.contestId
-                    + " due to network or parsing error: " + e.getMessage(), e);
+            throw new ConnectionException("Failed to refresh verdicts for Satori contest " + this.contestId + ": " + e.getMessage(), e);
         }
     }
 
     public void loadSubmissions() throws PlatformException, ConnectionException, LoginException {
+        loadSubmissions(true);
+    }
+
+    private void loadSubmissions(boolean refresh) throws PlatformException, ConnectionException, LoginException {
+        loads.run("submissions", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+            if (!refresh && loadedSubmissions) return null;
+            fetchSubmissions();
+            return null;
+        });
+    }
+
+    private void fetchSubmissions() throws PlatformException, ConnectionException, LoginException {
         if (!this.loaded) {
-            loadTasks();
+            loadTasks(false);
         }
         if (!this.satori.isSessionValid()){
             throw new LoginException("You are not logged in " + this.satori.getPlatformName());
         }
-        ExecutorService es = Executors.newCachedThreadPool();
-        final Map<String, SatoriSubmission> newSubmissions = new TreeMap<>();
-        Set<SatoriTask> unsuccesses = new HashSet<>();
         this.loadedSubmissions = false;
+        this.satori.scheduler().runAll(this.tasks.values(), SatoriTask::loadSubmissions,
+                "submissions", 5, TimeUnit.MINUTES);
+        collectSubmissionsFromTasks();
+    }
 
-        for (SatoriTask task : this.tasks.values()) {
-            es.execute(new Runnable() {
-                public void run() {
-                    try{
-                        task.loadSubmissions();
-                        for (Submission submission : task.getSubmissionHistory()) {
-                            synchronized (newSubmissions) {
-                                String submissionId = submission.getSubmissionId();
-                                if (!submissions.containsKey(submissionId)) {
-                                    newSubmissions.put(submissionId, (SatoriSubmission) submission);
-                                } else {
-                                    newSubmissions.put(submissionId, submissions.get(submissionId));
-                                }
-                            }
-                        }
-                    }catch (Exception e){
-                        unsuccesses.add(task);
-                    }
-                }
-            });
+    void ensureTasksLoaded() throws PlatformException, ConnectionException, LoginException {
+        if (!this.loaded) {
+            loadTasks(false);
         }
-        es.shutdown();
-        try {
-            boolean finished = es.awaitTermination(5, TimeUnit.MINUTES);
-            if (!finished || unsuccesses.size() > 0) {
-                throw new PlatformException("Unsaccessfull grabing submissions");
+    }
+
+    Collection<SatoriTask> loadedTasks() {
+        return this.tasks.values();
+    }
+
+    /**
+     * Rebuilds the contest's submission map from the already loaded submissions of its tasks.
+     */
+    void collectSubmissionsFromTasks() {
+        final Map<String, SatoriSubmission> newSubmissions = new TreeMap<>();
+        for (SatoriTask task : this.tasks.values()) {
+            for (SatoriSubmission submission : task.loadedSubmissions()) {
+                String submissionId = submission.getSubmissionId();
+                newSubmissions.put(submissionId, submissions.getOrDefault(submissionId, submission));
             }
-        }catch (InterruptedException e){
-            throw new PlatformException("Unsaccessfull grabing submissions");
         }
         this.submissions = newSubmissions;
         this.loadedSubmissions = true;
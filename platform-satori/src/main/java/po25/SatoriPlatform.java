@@ -1,26 +1,65 @@
 package po25;
 
-import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class SatoriPlatform extends AbstractPlatform implements Platform {
 
-    private Map<String, SatoriContest> contests = new TreeMap<>();
-    private boolean loaded = false;
-    private boolean loadedSubmissions = false;
-    private Map<String, SatoriSubmission> submissions = new TreeMap<>();
+    private volatile Map<String, SatoriContest> contests = new TreeMap<>();
+    private volatile boolean loaded = false;
+    private volatile boolean loadedSubmissions = false;
+    private volatile Map<String, SatoriSubmission> submissions = new TreeMap<>();
+    /** Loads of the contest list ("contests") and of the submission history ("submissions") in progress. */
+    private final SingleFlight<String, Void> loads = new SingleFlight<>();
+
+    static final String SESSION_COOKIE = "satori_token";
+    /** Address of the Satori server, overridable with -Ddccp.satori.baseUrl (e.g. a local replay server). */
+    public static final String DEFAULT_BASE_URL = "https://satori.tcs.uj.edu.pl";
+
+    /** Maximum number of concurrent requests to the Satori server, overridable with -Ddccp.satori.maxConnections. */
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    // Nothing in AbstractPlatform's constructor makes requests, so the scheduler can be created with
+    // the other fields; only onSessionTokenChanged runs before them, and it does not use it.
+    private final SatoriRequestScheduler scheduler = new SatoriRequestScheduler(
+            Integer.getInteger("dccp.satori.maxConnections", DEFAULT_MAX_CONNECTIONS),
+            new SatoriRequestScheduler.SessionObserver() {
+                @Override
+                public String currentToken() {
+                    return currentSessionToken().orElse(null);
+                }
+
+                @Override
+                public void sessionAccepted(String token) {
+                    markSessionValid(token);
+                }
+
+                @Override
+                public void sessionRejected(String token) {
+                    invalidateSession(token);
+                }
+            });
 
     public SatoriPlatform() {
-        super("https://satori.tcs.uj.edu.pl");
+        this(System.getProperty("dccp.satori.baseUrl", DEFAULT_BASE_URL));
+    }
+
+    /**
+     * @param baseUrl address of the Satori server, without a trailing slash.
+     */
+    public SatoriPlatform(String baseUrl) {
+        super(baseUrl);
+    }
+
+    SatoriRequestScheduler scheduler() {
+        return scheduler;
     }
 
     @Override
@@ -28,18 +67,50 @@ public class SatoriPlatform extends AbstractPlatform implements Platform {
         return "Satori";
     }
 
+    @Override
+    protected void onSessionTokenChanged(Optional<String> token) {
+        if (token.isPresent()) {
+            HttpTransport.getDefault().setCookie(this.baseApiUrl, SESSION_COOKIE, token.get());
+        } else {
+            HttpTransport.getDefault().removeCookie(this.baseApiUrl, SESSION_COOKIE);
+        }
+    }
+
+    /**
+     * Fetches and parses an authenticated page. The session cookie comes from the transport's
+     * cookie store, which holds the current token.
+     */
+    Document fetchDocument(final String url, int timeoutMillis) throws IOException {
+        final Duration timeout = Duration.ofMillis(timeoutMillis);
+        return parse(scheduler().call(url, () -> HttpTransport.getDefault().request(url).timeout(timeout).get()));
+    }
+
+    static Document parse(HttpTransport.Response res) {
+        String body = res.body();
+        ParseEvent event = ParseEvent.begin("html", res.uri().toString(), body.length());
+        Metrics.Timer.Sample sample = Metrics.timer("satori.parse").start();
+        try {
+            return Jsoup.parse(body, res.uri().toString());
+        } finally {
+            sample.stop();
+            event.finish();
+        }
+    }
+
     @Override
     protected String performPlatformLogin(String username, char[] password) throws ConnectionException {
         try {
-            Connection.Response res = Jsoup
-                    .connect(this.baseApiUrl + "/login")
-                    .data("login", username, "password", new String(password))
-                    .method(Connection.Method.POST)
-                    .timeout(10000)
-                    .execute();
-
-            Map<String, String> cookies = res.cookies();
-            return cookies.get("satori_token");
+            String loginUrl = this.baseApiUrl + "/login";
+            // a token left from an earlier session must not be mistaken for the new one
+            HttpTransport.getDefault().removeCookie(this.baseApiUrl, SESSION_COOKIE);
+            scheduler().callWithoutSession(loginUrl, () -> HttpTransport.getDefault()
+                    .request(loginUrl)
+                    .data("login", username)
+                    .data("password", new String(password))
+                    .timeout(Duration.ofSeconds(10))
+                    .post());
+
+            return HttpTransport.getDefault().getCookie(this.baseApiUrl, SESSION_COOKIE).orElse(null);
         } catch (IOException e){
             throw new ConnectionException("Check your Internet");
         }finally {
@@ -50,27 +121,42 @@ public class SatoriPlatform extends AbstractPlatform implements Platform {
     @Override
     protected boolean validateTokenWithServer(String token) throws ConnectionException {
         try {
-            Document doc = Jsoup.connect(this.baseApiUrl)
-                    .cookie("satori_token", token)
-                    .timeout(10000)
-                    .get();
-            return doc.text().contains("Logged in");
+            HttpTransport.getDefault().setCookie(this.baseApiUrl, SESSION_COOKIE, token);
+            HttpTransport.Response res = scheduler().callWithoutSession(this.baseApiUrl, () -> HttpTransport.getDefault()
+                    .request(this.baseApiUrl)
+                    .timeout(Duration.ofSeconds(10))
+                    .get());
+            return parse(res).text().contains("Logged in");
         } catch (IOException e){
             throw new ConnectionException("Check your Internet");
         }
     }
 
 
-    private void loadContests() throws LoginException, ConnectionException, PlatformException {
+    /**
+     * @param refresh fetch the contest list even if it is already loaded.
+     */
+    private void loadContests(boolean refresh) throws LoginException, ConnectionException, PlatformException {
+        loads.run("contests", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+            if (!refresh && loaded) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("satori.contests.load").start();
+            try {
+                fetchContests();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchContests() throws LoginException, ConnectionException, PlatformException {
         Map<String, SatoriContest> newContests = new TreeMap<>();
         if (!this.isSessionValid()){
             throw new LoginException("You are not logged in " + this.getPlatformName());
         }
         try {
-            Document doc = Jsoup.connect(this.baseApiUrl + "/contest/select")
-                    .cookie("satori_token", getRequiredToken())
-                    .timeout(30000)
-                    .get();
+            String selectUrl = this.baseApiUrl + "/contest/select";
+            Document doc = fetchDocument(selectUrl, 30000);
             Element contestTableBody;
             if(doc.select("div#content table tbody").size() > 2){
                 contestTableBody = doc.select("div#content table tbody").get(1);
@@ -104,74 +190,125 @@ public class SatoriPlatform extends AbstractPlatform implements Platform {
 
             this.contests = newContests;
             this.loaded = true;
-        }  catch (IOException e){
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
+        } catch (IOException e) {
             throw new ConnectionException("Check your Internet");
         }
     }
-    private void loadSubmissions() throws PlatformException, ConnectionException, LoginException {
+    /**
+     * @param refresh fetch the submission history even if it is already loaded.
+     */
+    private void loadSubmissions(boolean refresh) throws PlatformException, ConnectionException, LoginException {
+        loads.run("submissions", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+            if (!refresh && loadedSubmissions) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("satori.history.load").start();
+            try {
+                fetchSubmissions();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchSubmissions() throws PlatformException, ConnectionException, LoginException {
         if (!this.loaded) {
-            loadContests();
+            loadContests(false);
         }
         if (!this.isSessionValid()){
             throw new LoginException("You are not logged in " + this.getPlatformName());
         }
-        ExecutorService es = Executors.newCachedThreadPool();
-        final Map<String, SatoriSubmission> newSubmissions = new TreeMap<>();
-        Set<SatoriContest> unsuccesses = new HashSet<>();
         this.loadedSubmissions = false;
-        for (SatoriContest contest : contests.values()) {
-            es.execute(new Runnable() {
-                public void run() {
-                    try{
-                        contest.loadSubmissions();
-                        for (Submission submission : contest.getSubmissionHistory()) {
-                            synchronized (newSubmissions) {
-                                String submissionId = submission.getSubmissionId();
-                                if (!submissions.containsKey(submissionId)) {
-                                    newSubmissions.put(submissionId, (SatoriSubmission) submission);
-                                } else {
-                                    newSubmissions.put(submissionId, submissions.get(submissionId));
-                                }
-                            }
-                        }
-                    }catch (Exception e){
-                        unsuccesses.add(contest);
-                    }
-                }
-            });
+
+        // Flat fan-out: first the task lists of all contests, then the submissions of all tasks.
+        List<SatoriContest> allContests = new ArrayList<>(contests.values());
+        scheduler().runAll(allContests, SatoriContest::ensureTasksLoaded, "tasks", 5, TimeUnit.MINUTES);
+        List<SatoriTask> allTasks = new ArrayList<>();
+        for (SatoriContest contest : allContests) {
+            allTasks.addAll(contest.loadedTasks());
         }
-        es.shutdown();
-        try {
-            boolean finished = es.awaitTermination(5, TimeUnit.MINUTES);
-            if (!finished || unsuccesses.size() > 0) {
-                throw new PlatformException("Unsaccessfull grabing submissions");
+        scheduler().runAll(allTasks, SatoriTask::loadSubmissions, "submissions", 5, TimeUnit.MINUTES);
+
+        final Map<String, SatoriSubmission> newSubmissions = new TreeMap<>();
+        for (SatoriContest contest : allContests) {
+            contest.collectSubmissionsFromTasks();
+            for (Submission submission : contest.getSubmissionHistory()) {
+                String submissionId = submission.getSubmissionId();
+                newSubmissions.put(submissionId, submissions.getOrDefault(submissionId, (SatoriSubmission) submission));
             }
-        }catch (InterruptedException e){
-            throw new PlatformException("Unsaccessfull grabing submissions");
         }
         submissions = newSubmissions;
         this.loadedSubmissions = true;
     }
 
+    /**
+     * Refreshes the verdicts of all pending submissions, one results page request per contest
+     * that has any.
+     */
+    public void refreshPendingVerdicts() throws PlatformException, ConnectionException, LoginException {
+        for (SatoriContest contest : contests.values()) {
+            contest.refreshPendingVerdicts();
+        }
+    }
+
+    /**
+     * Refreshes the given submissions with one results page request per contest that has
+     * pending ones among them.
+     */
+    @Override
+    public Map<String, Verdict> refreshVerdicts(Collection<? extends Submission> submissions) throws PlatformException, ConnectionException, LoginException {
+        Map<SatoriContest, Map<String, SatoriSubmission>> pendingByContest = new HashMap<>();
+        for (Submission submission : submissions) {
+            if (submission instanceof SatoriSubmission && !((SatoriSubmission) submission).isComplete()) {
+                SatoriSubmission satoriSubmission = (SatoriSubmission) submission;
+                Map<String, SatoriSubmission> pending = pendingByContest.get(satoriSubmission.contest());
+                if (pending == null) {
+                    pending = new HashMap<>();
+                    pendingByContest.put(satoriSubmission.contest(), pending);
+                }
+                pending.put(satoriSubmission.getSubmissionId(), satoriSubmission);
+            }
+        }
+        for (Map.Entry<SatoriContest, Map<String, SatoriSubmission>> entry : pendingByContest.entrySet()) {
+            entry.getKey().refreshVerdicts(entry.getValue());
+        }
+        Map<String, Verdict> verdicts = new LinkedHashMap<>();
+        for (Submission submission : submissions) {
+            verdicts.put(submission.getSubmissionId(), submission instanceof SatoriSubmission
+                    ? submission.peekVerdictType()
+                    : submission.getVerdictType());
+        }
+        return verdicts;
+    }
+
     public void reload() throws PlatformException, ConnectionException, LoginException {
-        this.loadContests();
-        this.loadSubmissions();
+        this.loadContests(true);
+        this.loadSubmissions(true);
     }
 
     @Override
     public List<Contest> getAllContests() throws PlatformException, LoginException, ConnectionException {
         if (!loaded) {
-            loadContests();
+            loadContests(false);
         }
         return new ArrayList<>(contests.values());
     }
 
+    @Override
+    public Collection<Contest> getContestView() throws PlatformException, LoginException, ConnectionException {
+        if (!loaded) {
+            loadContests(false);
+        }
+        return Collections.unmodifiableCollection(contests.values());
+    }
+
     @Override
     public Optional<Contest> getContestById(String contestId) throws PlatformException, LoginException, ConnectionException {
         if (!loaded) {
-            loadContests();
+            loadContests(false);
         }
-        return Optional.of(contests.get(contestId));
+        return Optional.ofNullable(contests.get(contestId));
     }
 
     @Override
@@ -187,7 +324,7 @@ public class SatoriPlatform extends AbstractPlatform implements Platform {
     @Override
     public Submission getSubmission(String submissionId) throws PlatformException, ConnectionException, LoginException {
         if (!loadedSubmissions) {
-            loadSubmissions();
+            loadSubmissions(false);
         }
 
         return this.submissions.get(submissionId);
@@ -195,7 +332,7 @@ public class SatoriPlatform extends AbstractPlatform implements Platform {
 
     @Override
     public List<Submission> getSubmissionHistory() throws PlatformException, ConnectionException, LoginException{
-        if(!loadedSubmissions) loadSubmissions();
+        if(!loadedSubmissions) loadSubmissions(false);
         return new ArrayList<>(submissions.values());
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package po25;
+
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform-scoped scheduler that every Satori request goes through.
+ * Each host gets a fair semaphore with a fixed number of permits, so no matter how many
+ * loads are fanned out, at most that many requests hit the server at once and waiting
+ * callers are served in arrival order. Fan-out work runs on virtual threads (see IoScope).
+ * Authenticated requests also tell the platform what they reveal about the session, so it
+ * does not need a separate validation request before each operation.
+ */
+class SatoriRequestScheduler {
+
+    /**
+     * A single blocking HTTP exchange, usually made through {@link HttpTransport}.
+     */
+    interface HttpCall<T> {
+        T execute() throws IOException;
+    }
+
+    /**
+     * Work done for one item of a fan-out.
+     */
+    interface Action<T> {
+        void run(T item) throws PlatformException, ConnectionException, LoginException;
+    }
+
+    /**
+     * Told whether the server accepted the session of an authenticated request. Both callbacks
+     * get the token that was current when the request was made, null if there was none.
+     */
+    interface SessionObserver {
+        String currentToken();
+
+        void sessionAccepted(String token);
+
+        void sessionRejected(String token);
+    }
+
+    private final int permitsPerHost;
+    private final SessionObserver sessionObserver;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerHost  maximum number of concurrent requests to a single host.
+     * @param sessionObserver receives the session outcome of every authenticated request.
+     */
+    SatoriRequestScheduler(int permitsPerHost, SessionObserver sessionObserver) {
+        if (permitsPerHost < 1) {
+            throw new IllegalArgumentException("permitsPerHost must be positive");
+        }
+        this.permitsPerHost = permitsPerHost;
+        this.sessionObserver = sessionObserver;
+    }
+
+    /**
+     * Runs an authenticated request once a permit for the URL's host is available.
+     * A redirect to the login page or a 401 invalidates the session.
+     *
+     * @param url  the requested URL, used to pick the host's permits.
+     * @param call the request itself.
+     * @throws SatoriSessionExpiredException if the server did not accept the session.
+     */
+    <T> T call(String url, HttpCall<T> call) throws IOException {
+        String token = sessionObserver.currentToken();
+        T result;
+        try {
+            result = callWithoutSession(url, call);
+        } catch (HttpTransport.StatusException e) {
+            if (e.getStatusCode() == 401) {
+                throw sessionExpired(token);
+            }
+            throw e;
+        }
+        if (isLoginPage(result)) {
+            throw sessionExpired(token);
+        }
+        sessionObserver.sessionAccepted(token);
+        return result;
+    }
+
+    /**
+     * Runs a request that says nothing about the session (logging in, validating a token)
+     * once a permit for the URL's host is available.
+     */
+    <T> T callWithoutSession(String url, HttpCall<T> call) throws IOException {
+        String host = hostOf(url);
+        Semaphore permits = hostPermits.computeIfAbsent(host, h -> new Semaphore(permitsPerHost, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + host);
+        }
+        try {
+            return call.execute();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs {@code action} for every item on its own virtual thread and waits for all of them.
+     * The first failure cancels the remaining items and is the one reported; when the timeout
+     * expires all unfinished work is cancelled.
+     *
+     * @param what description used in the thread names, e.g. "submissions".
+     */
+    <T> void runAll(Collection<T> items, Action<T> action, String what, long timeout, TimeUnit unit)
+            throws PlatformException, ConnectionException, LoginException {
+        try (IoScope scope = new IoScope("satori-" + what)) {
+            for (final T item : items) {
+                scope.fork(() -> {
+                    action.run(item);
+                    return null;
+                });
+            }
+            scope.join(Duration.ofNanos(unit.toNanos(timeout)));
+        }
+    }
+
+    private SatoriSessionExpiredException sessionExpired(String token) {
+        sessionObserver.sessionRejected(token);
+        return new SatoriSessionExpiredException("Your Satori session has expired. Please log in again.");
+    }
+
+    private static boolean isLoginPage(Object result) {
+        String location;
+        if (result instanceof Document) {
+            location = ((Document) result).location();
+        } else if (result instanceof HttpTransport.Response) {
+            HttpTransport.Response response = (HttpTransport.Response) result;
+            if (response.statusCode() == 401) return true;
+            location = response.uri().toString();
+        } else {
+            return false;
+        }
+        try {
+            String path = URI.create(location).getPath();
+            return path != null && path.startsWith("/login");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
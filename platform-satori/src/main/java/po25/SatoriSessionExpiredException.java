@@ -0,0 +1,13 @@
+package po25;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link SatoriRequestScheduler} when Satori answers an authenticated request with its login
+ * page or a 401, i.e. the session is no longer accepted. Callers report it as a {@link LoginException}.
+ */
+class SatoriSessionExpiredException extends IOException {
+    SatoriSessionExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,143 @@
+package po25;
+
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of Satori stylesheets keyed by URL, shared by all SatoriTask instances.
+ * Nearly every task page links the same few stylesheets, so each one is downloaded once
+ * and then revalidated with a conditional request when it gets stale. Entries are also
+ * kept under ~/.dccp/cache/css so that new processes start warm; set the system property
+ * dccp.satori.cssDiskCache=false to keep them in memory only.
+ */
+class SatoriStylesheetCache {
+    private static final long FRESH_FOR_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final SatoriStylesheetCache INSTANCE = new SatoriStylesheetCache(
+            Boolean.parseBoolean(System.getProperty("dccp.satori.cssDiskCache", "true"))
+                    ? AbstractPlatform.getConfigDirectory().resolve("cache").resolve("css")
+                    : null);
+
+    private static final class CachedSheet {
+        final String text;
+        final String etag;
+        final String lastModified;
+        final long fetchedAt;
+
+        CachedSheet(String text, String etag, String lastModified, long fetchedAt) {
+            this.text = text;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - fetchedAt < FRESH_FOR_MILLIS;
+        }
+    }
+
+    private final ConcurrentMap<String, CachedSheet> sheets = new ConcurrentHashMap<>();
+    private final SingleFlight<String, String> fetches = new SingleFlight<>();
+    private final DiskCache disk;
+
+    SatoriStylesheetCache(Path diskDirectory) {
+        this.disk = diskDirectory != null ? new DiskCache(diskDirectory) : null;
+    }
+
+    static SatoriStylesheetCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the text of the stylesheet, downloading or revalidating it only when the cached
+     * copy is missing or stale. Concurrent callers asking for the same URL wait for one download.
+     *
+     * @param url       absolute URL of the stylesheet.
+     * @param scheduler scheduler of the platform the request is made for.
+     */
+    String get(String url, SatoriRequestScheduler scheduler) throws IOException {
+        CachedSheet sheet = sheets.get(url);
+        if (sheet != null && sheet.isFresh()) {
+            Metrics.counter("cache.stylesheets.hit").increment();
+            return sheet.text;
+        }
+
+        return fetches.run(url, IOException.class, () -> fetch(url, scheduler));
+    }
+
+    private String fetch(String url, SatoriRequestScheduler scheduler) throws IOException {
+        // the caller saw a missing or stale sheet, but a fetch that just finished may have replaced it
+        CachedSheet sheet = sheets.get(url);
+        if (sheet == null) {
+            sheet = readFromDisk(url);
+        }
+        if (sheet != null && sheet.isFresh()) {
+            Metrics.counter("cache.stylesheets.hit").increment();
+            sheets.put(url, sheet);
+            return sheet.text;
+        }
+        Metrics.counter("cache.stylesheets.miss").increment();
+
+        HttpTransport.Request request = HttpTransport.getDefault().request(url)
+                .timeout(Duration.ofSeconds(10));
+        if (sheet != null) {
+            if (sheet.etag != null) request.header("If-None-Match", sheet.etag);
+            if (sheet.lastModified != null) request.header("If-Modified-Since", sheet.lastModified);
+        }
+        HttpTransport.Response res = scheduler.call(url, request::get);
+
+        CachedSheet fresh;
+        if (res.statusCode() == 304 && sheet != null) {
+            fresh = new CachedSheet(sheet.text, sheet.etag, sheet.lastModified, System.currentTimeMillis());
+        } else {
+            String body = res.body();
+            ParseEvent event = ParseEvent.begin("html", url, body.length());
+            String text;
+            try {
+                text = Jsoup.parse(body).body().text();
+            } finally {
+                event.finish();
+            }
+            fresh = new CachedSheet(text, res.header("ETag"), res.header("Last-Modified"), System.currentTimeMillis());
+        }
+        sheets.put(url, fresh);
+        writeToDisk(url, fresh);
+        return fresh.text;
+    }
+
+    private CachedSheet readFromDisk(String url) {
+        if (disk == null) return null;
+        try {
+            Optional<Properties> stored = disk.read(url);
+            if (!stored.isPresent()) return null;
+            Properties props = stored.get();
+            return new CachedSheet(props.getProperty("text", ""), props.getProperty("etag"),
+                    props.getProperty("lastModified"), Long.parseLong(props.getProperty("fetchedAt", "0")));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeToDisk(String url, CachedSheet sheet) {
+        if (disk == null) return;
+        Properties props = new Properties();
+        props.setProperty("text", sheet.text);
+        if (sheet.etag != null) props.setProperty("etag", sheet.etag);
+        if (sheet.lastModified != null) props.setProperty("lastModified", sheet.lastModified);
+        props.setProperty("fetchedAt", Long.toString(sheet.fetchedAt));
+
+        try {
+            disk.write(url, props, url);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write stylesheet cache entry " + disk.fileFor(url) + " (" + e.getMessage() + ")");
+        }
+    }
+}
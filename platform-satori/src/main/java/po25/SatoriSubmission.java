@@ -1,13 +1,11 @@
 package po25;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -16,17 +14,77 @@ public class SatoriSubmission implements Submission {
     private final String id;
     private final String url;
     private final LocalDateTime time;
-    private String verdict;
-    private boolean complete;
+    /**
+     * Replaced as a whole by the thread that refreshes the verdict, so readers on other threads
+     * always see a text, type and completeness that belong together.
+     */
+    private volatile Status status;
 
-    protected SatoriSubmission(SatoriTask task, String id, LocalDateTime time, String url){
+    private static final class Status {
+        final String verdict;
+        final Verdict verdictType;
+        final boolean complete;
+
+        Status(String verdict, Verdict verdictType, boolean complete) {
+            this.verdict = verdict;
+            this.verdictType = verdictType;
+            this.complete = complete;
+        }
+    }
+
+    private static final Status QUEUED = new Status("QUE", Verdict.QUEUED, false);
+
+    /** How many newest rows of the results table are fetched to refresh pending submissions. */
+    static final int PENDING_RESULTS_LIMIT = 200;
+
+    /**
+     * @param status content of the status column of the results table; the verdict is
+     *               seeded from it, so no request is needed for already judged submissions.
+     */
+    protected SatoriSubmission(SatoriTask task, String id, LocalDateTime time, String url, String status){
         this.task = task;
         this.id = id;
         this.time = time;
         this.url = url;
-        this.verdict = "QUE";
-        complete = false;
-        this.loadVerdict();
+        this.applyStatus(status);
+    }
+
+    /**
+     * Returns the status column of a row of a Satori results table (ID, Problem, Time, Status).
+     */
+    static String statusOf(Element row) {
+        Elements cells = row.children();
+        return cells.size() > 3 ? cells.get(3).text() : "";
+    }
+
+    /**
+     * Updates every pending submission that has a row in the given results table.
+     *
+     * @param rows    rows of a results table, the header row included.
+     * @param pending pending submissions keyed by submission id.
+     */
+    static void applyResults(Elements rows, Map<String, SatoriSubmission> pending) {
+        for (int i = 1; i < rows.size(); i++) {
+            Element row = rows.get(i);
+            if (row.children().isEmpty()) continue;
+            SatoriSubmission submission = pending.get(row.children().get(0).text());
+            if (submission != null) {
+                submission.applyStatus(statusOf(row));
+            }
+        }
+    }
+
+    void applyStatus(String status){
+        Verdict parsed = Verdict.parse(status);
+        this.status = parsed.isTerminal() ? new Status(status, parsed, true) : QUEUED;
+    }
+
+    boolean isComplete() {
+        return this.status.complete;
+    }
+
+    SatoriContest contest() {
+        return this.task.contest;
     }
 
     @Override
@@ -46,24 +104,31 @@ public class SatoriSubmission implements Submission {
 
     private void loadVerdict(){
         try{
-            Map<String, SatoriSubmission> newSubmissions = new HashMap<>();
-            Document doc = Jsoup.connect(this.url)
-                    .cookie("satori_token", this.task.contest.satori.getRequiredToken())
-                    .get();
-            String result = doc.select("table").select("tr").get(1).select("td").get(4).text();
-            if(!result.equals("None") && !result.equals("QUE") && !result.equals("...")){
-                this.verdict = result;
-                this.complete = true;
-            }else{
-                this.verdict = "QUE";
-            }
+            Document doc = this.task.contest.satori.fetchDocument(this.url, 30000);
+            this.applyStatus(doc.select("table").select("tr").get(1).select("td").get(4).text());
         }catch(Exception e){
-            this.verdict = "Unknown";
+            this.status = new Status("Unknown", Verdict.UNKNOWN, false);
         }
     }
     public String getVerdict() {
-        if(!this.complete) this.loadVerdict();
-        return this.verdict;
+        if(!this.status.complete) this.loadVerdict();
+        return this.status.verdict;
+    }
+
+    @Override
+    public Verdict getVerdictType() {
+        if(!this.status.complete) this.loadVerdict();
+        return this.status.verdictType;
+    }
+
+    @Override
+    public String peekVerdict() {
+        return this.status.verdict;
+    }
+
+    @Override
+    public Verdict peekVerdictType() {
+        return this.status.verdictType;
     }
 
     @Override
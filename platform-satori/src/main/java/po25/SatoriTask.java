@@ -1,7 +1,5 @@
 package po25;
 
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -9,22 +7,34 @@ import org.jsoup.select.Elements;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 public class SatoriTask implements Task {
+    /** How long a cached statement is served without asking the server whether it changed. */
+    private static final Duration STATEMENT_FRESH_FOR = Duration.ofHours(1);
+    /** Page size of an incremental sync; a full resync asks for everything. */
+    private static final int INCREMENTAL_RESULTS_LIMIT = 50;
+    private static final int FULL_RESULTS_LIMIT = 2000000000;
+    private static final DateTimeFormatter RESULT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final String id;
     private final String code;
     private final String name;
     private final String url;
     protected final SatoriContest contest;
-    private boolean loaded;
-    private boolean loadedSubmissions;
+    private volatile boolean loaded;
+    private volatile boolean loadedSubmissions;
     private String content;
     private String parsedContent;
-    private Map<String, SatoriSubmission> submissions;
+    private volatile Map<String, SatoriSubmission> submissions;
+    /** Highest submission id seen in the results table; -1 while none is known. */
+    private long highWaterMark;
     private String css;
+    /** Loads of the statement ("statement") and of the submissions ("submissions") in progress. */
+    private final SingleFlight<String, Void> loads = new SingleFlight<>();
 
     SatoriTask(String id, String code, String name, String url, SatoriContest contest) {
         this.id = id;
@@ -35,46 +45,97 @@ public class SatoriTask implements Task {
         this.loaded = false;
         this.loadedSubmissions = false;
         this.submissions = new HashMap<>();
+        this.highWaterMark = -1;
+    }
+
+    /**
+     * @param refresh fetch the statement even if it is already loaded.
+     */
+    private void load(boolean refresh) throws PlatformException, ConnectionException, LoginException {
+        loads.run("statement", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+            if (!refresh && loaded) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("satori.statement.load").start();
+            try {
+                fetch();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
     }
 
-    private void load() throws PlatformException, ConnectionException, LoginException {
+    private void fetch() throws PlatformException, ConnectionException, LoginException {
         this.loaded = false;
+        String platformName = this.contest.satori.getPlatformName();
+        Optional<StatementCache.Entry> cached = StatementCache.getDefault().get(platformName, this.contest.getId(), this.id);
+        if (cached.isPresent() && cached.get().isFresh(STATEMENT_FRESH_FOR)) {
+            apply(cached.get());
+            return;
+        }
+
         if (!this.contest.satori.isSessionValid()) {
             throw new LoginException("You are not logged in.");
         }
         try {
-            Document doc = Jsoup.connect(this.url)
-                    .cookie("satori_token", this.contest.satori.getRequiredToken())
-                    .timeout(10000)
-                    .get();
+            final HttpTransport.Request request = HttpTransport.getDefault().request(this.url)
+                    .timeout(Duration.ofSeconds(10));
+            if (cached.isPresent()) {
+                if (cached.get().etag() != null) request.header("If-None-Match", cached.get().etag());
+                if (cached.get().lastModified() != null) request.header("If-Modified-Since", cached.get().lastModified());
+            }
+            HttpTransport.Response res = this.contest.satori.scheduler().call(this.url, request::get);
+            if (res.statusCode() == 304 && cached.isPresent()) {
+                StatementCache.Entry revalidated = cached.get().revalidated();
+                StatementCache.getDefault().put(platformName, this.contest.getId(), this.id, revalidated);
+                apply(revalidated);
+                return;
+            }
+            Document doc = SatoriPlatform.parse(res);
 
             StringBuilder cssBuilder = new StringBuilder();
             for (Element link : doc.select("link")) {
                 String cssUrl = this.contest.satori.baseApiUrl + link.attr("href");
 
                 if (link.attr("rel").equals("stylesheet")) {
-                    Document cssBody = Jsoup.connect(cssUrl)
-                            .cookie("satori_token", this.contest.satori.getRequiredToken())
-                            .timeout(10000)
-                            .get();
-                    cssBuilder.append(cssBody.body().text()).append('\n');
+                    String sheet = SatoriStylesheetCache.getInstance().get(cssUrl, this.contest.satori.scheduler());
+                    cssBuilder.append(sheet).append('\n');
                 }
             }
 
             this.css = cssBuilder.toString();
             this.content = doc.body().getElementsByClass("mainsphinx").first().toString();
-            StringBuilder parsedContentBuilder = new StringBuilder();
-            for (Element child : doc.body().getElementsByClass("mainsphinx").first().children()) {
-                parsedContentBuilder.append(parseTextContent(child));
-            }
-            this.parsedContent = parsedContentBuilder.toString();
+            this.parsedContent = parseStatement(doc.body().getElementsByClass("mainsphinx").first());
             this.loaded = true;
+
+            StatementCache.getDefault().put(platformName, this.contest.getId(), this.id, new StatementCache.Entry(
+                    this.parsedContent, this.content, this.css, null, null, null, null,
+                    res.header("ETag"), res.header("Last-Modified"), System.currentTimeMillis()));
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
         } catch (IOException e) {
             throw new ConnectionException("Failed to load Satori task " + this.id + " content due to network or parsing error: " + e.getMessage(), e);
         }
     }
 
-    private String parseTextContent(Element element) {
+    private void apply(StatementCache.Entry entry) {
+        this.parsedContent = entry.content();
+        this.content = entry.unparsedContent();
+        this.css = entry.css();
+        this.loaded = true;
+    }
+
+    /**
+     * Converts the statement element ("mainsphinx") of a task page to plain text.
+     */
+    static String parseStatement(Element statement) {
+        StringBuilder parsedContentBuilder = new StringBuilder();
+        for (Element child : statement.children()) {
+            parsedContentBuilder.append(parseTextContent(child));
+        }
+        return parsedContentBuilder.toString();
+    }
+
+    static String parseTextContent(Element element) {
         StringBuilder answer = new StringBuilder();
 
         if (element.nodeName().equals("div") || element.nodeName().equals("table")) {
@@ -90,7 +151,7 @@ public class SatoriTask implements Task {
     }
 
     public String getCss() throws PlatformException, ConnectionException, LoginException {
-        if (!loaded) this.load();
+        if (!loaded) this.load(false);
         return this.css;
     }
 
@@ -111,7 +172,7 @@ public class SatoriTask implements Task {
     @Override
     public String getContent() throws PlatformException, ConnectionException, LoginException {
         if (!this.loaded) {
-            this.load();
+            this.load(false);
         }
         return this.parsedContent;
     }
@@ -119,7 +180,7 @@ public class SatoriTask implements Task {
     @Override
     public String getUnparsedContent() throws PlatformException, ConnectionException, LoginException {
         if (!this.loaded) {
-            this.load();
+            this.load(false);
         }
         return this.content;
     }
@@ -156,68 +217,197 @@ public class SatoriTask implements Task {
             }
             String submitUrl = this.contest.satori.baseApiUrl + "/contest/" + this.contest.contestId + "/submit";
 
-            Connection.Response res = Jsoup
-                    .connect(submitUrl)
-                    .cookie("satori_token", this.contest.satori.getRequiredToken())
+            final byte[] code = Files.readAllBytes(codeFile.toPath());
+            HttpTransport.Response res = this.contest.satori.scheduler().call(submitUrl, () -> HttpTransport.getDefault()
+                    .request(submitUrl)
                     .data("problem", this.id)
-                    .data("codefile", codeFile.getAbsolutePath(), Files.newInputStream(codeFile.toPath()))
-                    .method(Connection.Method.POST)
-                    .timeout(30000)
-                    .execute();
-
-            Document doc = res.parse();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            LocalDateTime time = LocalDateTime.parse(doc.select("table").select("tr").get(1).children().get(2).text(), formatter);
-            String submissionId = doc.select("table").select("tr").get(1).children().get(0).text();
-            submissions.put(submissionId, new SatoriSubmission(this, submissionId, time, "https://satori.tcs.uj.edu.pl/contest/" + this.contest.getId() + "/results/" + submissionId));
-            return submissions.get(submissionId);
+                    .file("codefile", codeFile.getAbsolutePath(), code)
+                    .timeout(Duration.ofSeconds(30))
+                    .post());
+
+            Document doc = SatoriPlatform.parse(res);
+            LocalDateTime time = LocalDateTime.parse(doc.select("table").select("tr").get(1).children().get(2).text(), RESULT_TIME_FORMAT);
+            Element row = doc.select("table").select("tr").get(1);
+            String submissionId = row.children().get(0).text();
+            SatoriSubmission submission = new SatoriSubmission(this, submissionId, time, this.contest.satori.baseApiUrl + "/contest/" + this.contest.getId() + "/results/" + submissionId, SatoriSubmission.statusOf(row));
+            addSubmission(submission);
+            return submission;
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
         } catch (IOException e) {
             throw new ConnectionException("Failed to submit solution for Satori task " + this.id + " due to network error: " + e.getMessage(), e);
         }
     }
 
     public List<Submission> getSubmissionHistory() throws PlatformException, ConnectionException, LoginException {
-        if (!loadedSubmissions) loadSubmissions();
+        if (!loadedSubmissions) loadSubmissions(false);
         return new ArrayList<>(submissions.values());
     }
 
     protected void loadSubmissions() throws PlatformException, ConnectionException, LoginException {
+        loadSubmissions(true);
+    }
+
+    private void loadSubmissions(boolean refresh) throws PlatformException, ConnectionException, LoginException {
+        loads.run("submissions", PlatformException.class, ConnectionException.class, LoginException.class, () -> {
+            if (!refresh && loadedSubmissions) return null;
+            Metrics.Timer.Sample sample = Metrics.timer("satori.submissions.load").start();
+            try {
+                fetchSubmissions();
+            } finally {
+                sample.stop();
+            }
+            return null;
+        });
+    }
+
+    private void fetchSubmissions() throws PlatformException, ConnectionException, LoginException {
         if (!this.contest.satori.isSessionValid()) {
             throw new LoginException("You are not logged in.");
         }
-        this.loadedSubmissions = false;
-        Map<String, SatoriSubmission> newSubmissions = new HashMap<>();
-
         try {
-            String resultsUrl = this.contest.satori.baseApiUrl + "/contest/" + this.contest.contestId +
-                    "/results?results_limit=2000000000&results_filter_problem=" + this.id;
-
-            Document doc = Jsoup.connect(resultsUrl)
-                    .cookie("satori_token", this.contest.satori.getRequiredToken())
-                    .timeout(30000)
-                    .get();
-
-            Elements result = doc.select("table").select("tr");
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            for (int i = 1; i < result.size(); i++) {
-                String submissionId = result.get(i).children().get(0).text();
-                if (!submissions.containsKey(submissionId)) {
-                    LocalDateTime time = LocalDateTime.parse(result.get(i).children().get(2).text(), formatter);
-                    newSubmissions.put(submissionId, new SatoriSubmission(this, submissionId, time, "https://satori.tcs.uj.edu.pl/contest/" + this.contest.getId() + "/results/" + submissionId));
-                } else {
-                    newSubmissions.put(submissionId, submissions.get(submissionId));
-                }
+            if (this.loadedSubmissions && syncNewerSubmissions()) {
+                return;
+            }
+            this.loadedSubmissions = false;
+            Map<String, SatoriSubmission> newSubmissions = new HashMap<>();
+            long newHighWaterMark = -1;
+            for (Element row : fetchResultRows(FULL_RESULTS_LIMIT)) {
+                SatoriSubmission submission = submissionFromRow(row, submissions);
+                newSubmissions.put(submission.getSubmissionId(), submission);
+                newHighWaterMark = Math.max(newHighWaterMark, numericId(submission.getSubmissionId()));
             }
 
-            submissions = newSubmissions;
+            replaceSubmissions(newSubmissions, newHighWaterMark);
             this.loadedSubmissions = true;
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
         } catch (IOException e) {
             throw new ConnectionException("Failed to load submissions for Satori task " + this.id + " due to network or parsing error: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Fetches only the newest page of the results table and merges it into the loaded submissions.
+     * The table is ordered newest first, so the page is enough as long as it reaches a submission
+     * at or below the high-water mark (or is not full). Otherwise there may be a gap between the
+     * page and what we know, and the caller falls back to a full resync.
+     *
+     * @return {@code true} if the merge was complete, {@code false} if a full resync is needed.
+     */
+    private boolean syncNewerSubmissions() throws IOException, PlatformException {
+        List<Element> rows = fetchResultRows(INCREMENTAL_RESULTS_LIMIT);
+        boolean reachedKnown = rows.size() < INCREMENTAL_RESULTS_LIMIT;
+        // copied and swapped under the monitor, like submit() adding to the map
+        synchronized (this) {
+            Map<String, SatoriSubmission> merged = new HashMap<>(submissions);
+            long newHighWaterMark = highWaterMark;
+            for (Element row : rows) {
+                String submissionId = row.children().get(0).text();
+                long numericId = numericId(submissionId);
+                if (numericId < 0) return false;
+                if (numericId <= highWaterMark) reachedKnown = true;
+                merged.put(submissionId, submissionFromRow(row, merged));
+                newHighWaterMark = Math.max(newHighWaterMark, numericId);
+            }
+            if (!reachedKnown) return false;
+            submissions = merged;
+            highWaterMark = newHighWaterMark;
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the submissions with a full reload. Submissions newer than the reload (made by
+     * {@link #submit} while the results table was being fetched) are kept.
+     */
+    private synchronized void replaceSubmissions(Map<String, SatoriSubmission> reloaded, long reloadedHighWaterMark) {
+        long newHighWaterMark = reloadedHighWaterMark;
+        for (SatoriSubmission submission : submissions.values()) {
+            long numericId = numericId(submission.getSubmissionId());
+            if (numericId > reloadedHighWaterMark) {
+                reloaded.putIfAbsent(submission.getSubmissionId(), submission);
+                newHighWaterMark = Math.max(newHighWaterMark, numericId);
+            }
+        }
+        submissions = reloaded;
+        highWaterMark = newHighWaterMark;
+    }
+
+    private synchronized void addSubmission(SatoriSubmission submission) {
+        Map<String, SatoriSubmission> added = new HashMap<>(submissions);
+        added.put(submission.getSubmissionId(), submission);
+        submissions = added;
+    }
+
+    private List<Element> fetchResultRows(int limit) throws IOException, PlatformException {
+        String resultsUrl = this.contest.satori.baseApiUrl + "/contest/" + this.contest.contestId +
+                "/results?results_limit=" + limit + "&results_filter_problem=" + this.id;
+
+        Document doc = this.contest.satori.fetchDocument(resultsUrl, 30000);
+
+        Elements result = doc.select("table").select("tr");
+        return result.isEmpty() ? Collections.emptyList() : result.subList(1, result.size());
+    }
+
+    /**
+     * Returns the known submission for a results row with its status updated, or a new one.
+     */
+    private SatoriSubmission submissionFromRow(Element row, Map<String, SatoriSubmission> known) {
+        String submissionId = row.children().get(0).text();
+        String status = SatoriSubmission.statusOf(row);
+        SatoriSubmission existing = known.get(submissionId);
+        if (existing == null) {
+            LocalDateTime time = LocalDateTime.parse(row.children().get(2).text(), RESULT_TIME_FORMAT);
+            return new SatoriSubmission(this, submissionId, time, this.contest.satori.baseApiUrl + "/contest/" + this.contest.getId() + "/results/" + submissionId, status);
+        }
+        if (!existing.isComplete()) existing.applyStatus(status);
+        return existing;
+    }
+
+    private static long numericId(String submissionId) {
+        try {
+            return Long.parseLong(submissionId);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    Collection<SatoriSubmission> loadedSubmissions() {
+        return submissions.values();
+    }
+
+    /**
+     * Adds the submissions of this task that are still waiting for a verdict to {@code pending}.
+     */
+    void collectPending(Map<String, SatoriSubmission> pending) {
+        for (SatoriSubmission submission : submissions.values()) {
+            if (!submission.isComplete()) pending.put(submission.getSubmissionId(), submission);
+        }
+    }
+
+    /**
+     * Refreshes the verdicts of all pending submissions of this task with a single request
+     * for the newest rows of the task's results table.
+     */
+    public void refreshPendingVerdicts() throws PlatformException, ConnectionException, LoginException {
+        Map<String, SatoriSubmission> pending = new HashMap<>();
+        collectPending(pending);
+        if (pending.isEmpty()) return;
+        try {
+            String resultsUrl = this.contest.satori.baseApiUrl + "/contest/" + this.contest.contestId +
+                    "/results?results_limit=" + SatoriSubmission.PENDING_RESULTS_LIMIT + "&results_filter_problem=" + this.id;
+            Document doc = this.contest.satori.fetchDocument(resultsUrl, 30000);
+            SatoriSubmission.applyResults(doc.select("table").select("tr"), pending);
+        } catch (SatoriSessionExpiredException e) {
+            throw new LoginException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ConnectionException("Failed to refresh verdicts for Satori task " + this.id + ": " + e.getMessage(), e);
+        }
+    }
+
     public void reload() throws PlatformException, ConnectionException, LoginException {
-        this.load();
+        this.load(true);
         this.loadSubmissions();
     }
 }
\ No newline at end of file
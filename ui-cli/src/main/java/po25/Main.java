@@ -4,6 +4,8 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
 import po25.commands.*;
+import po25.commands.mixins.OutputMixin;
+import po25.daemon.DaemonClient;
 
 import java.util.concurrent.Callable;
 
@@ -16,24 +18,39 @@ import java.util.concurrent.Callable;
                 ViewContestCommand.class,
                 ViewTaskCommand.class,
                 LoginCommand.class,
+                DaemonCommand.class,
 //                SubmitCommand.class,
 //                StatusCommand.class,
-//                HistoryCommand.class
+                HistoryCommand.class,
+                WatchCommand.class,
+                StatsCommand.class
         })
 
 public class Main implements Callable<Integer> {
+    @CommandLine.Mixin
+    private OutputMixin output;
+
     @Override
     public Integer call() {
-        System.out.println("Welcome to Desktop Client for Competitive Programming Platforms!");
-        System.out.println("Use 'dccp <command> --help' for more information on a specific command.");
+        output.out().println("Welcome to Desktop Client for Competitive Programming Platforms!");
+        output.out().println("Use 'dccp <command> --help' for more information on a specific command.");
 //         new CommandLine(this).usage(System.out);
         return 0;
     }
 
     public static void main(String[] args) {
+        if (DaemonClient.shouldForward(args)) {
+            Integer exitCode = DaemonClient.forward(args);
+            if (exitCode != null) {
+                System.exit(exitCode);
+            }
+        }
         int exitCode = new CommandLine(new Main())
                 .setExecutionStrategy(new CommandLine.RunLast())
                 .execute(args);
+        if (exitCode == 0 && args.length > 0 && args[0].equals("login")) {
+            DaemonClient.resetIfRunning();
+        }
         System.exit(exitCode);
     }
 }
\ No newline at end of file
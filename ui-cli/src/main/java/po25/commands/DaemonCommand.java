@@ -0,0 +1,60 @@
+package po25.commands;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import po25.commands.mixins.OutputMixin;
+import po25.daemon.DaemonClient;
+import po25.daemon.DaemonProtocol;
+import po25.daemon.DaemonServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+@Command(name = "daemon",
+        description = "Runs a background daemon that keeps platforms warm, so later commands skip the cold start.",
+        mixinStandardHelpOptions = true)
+public class DaemonCommand implements Callable<Integer> {
+
+    private static final int DEFAULT_IDLE_MINUTES = 120;
+
+    @CommandLine.Mixin
+    private OutputMixin output;
+
+    @CommandLine.Option(names = {"--stop"},
+            description = "Stops the running daemon.")
+    private boolean stop;
+
+    @CommandLine.Option(names = {"--reset"},
+            description = "Makes the running daemon reload its platforms (e.g. after logging in).")
+    private boolean reset;
+
+    @CommandLine.Option(names = {"--idle-timeout"},
+            description = "Minutes without commands after which the daemon exits (default: " + DEFAULT_IDLE_MINUTES + ", never: 0).",
+            defaultValue = "" + DEFAULT_IDLE_MINUTES)
+    private int idleMinutes;
+
+    @Override
+    public Integer call() {
+        if (stop || reset) {
+            Integer exitCode = DaemonClient.forward(new String[]{"daemon", stop ? "--stop" : "--reset"});
+            if (exitCode == null) {
+                output.err().println("No dccp daemon is running.");
+                return 1;
+            }
+            return exitCode;
+        }
+        if (idleMinutes < 0) {
+            output.err().println("Error: Idle timeout cannot be negative.");
+            return 1;
+        }
+
+        try {
+            new DaemonServer(DaemonProtocol.socketPath(), Duration.ofMinutes(idleMinutes)).run();
+            return 0;
+        } catch (IOException e) {
+            output.err().println("Error running the dccp daemon: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -1,16 +1,91 @@
 package po25.commands;
 
+import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import po25.ConnectionException;
+import po25.LoginException;
+import po25.PlatformException;
+import po25.Submission;
+import po25.commands.mixins.ContestIdOptionMixin;
+import po25.commands.mixins.OutputMixin;
+import po25.commands.mixins.PlatformOptionMixin;
+import po25.service.PlatformService;
 
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
 import java.util.concurrent.Callable;
 
-// TODO:
 @Command(name = "history",
         description = "Displays submission history for contest and task.",
         mixinStandardHelpOptions = true)
 public class HistoryCommand implements Callable<Integer> {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Duration REFRESH_WAIT = Duration.ofSeconds(30);
+
+    @CommandLine.Mixin
+    private PlatformOptionMixin platformOptionMixin;
+
+    @CommandLine.Mixin
+    private ContestIdOptionMixin contestIdOptionMixin;
+
+    @CommandLine.Mixin
+    private OutputMixin output;
+
+    @CommandLine.Option(names = {"-t", "--task"},
+            description = "The ID/index of the task (default: all tasks of the contest).")
+    private String taskId;
+
+    private PlatformService platformService;
+
+    public HistoryCommand() {
+        this.platformService = PlatformService.getShared();
+    }
+
     @Override
-    public Integer call() throws Exception {
-        return 0;
+    public Integer call() {
+        String platformName = platformOptionMixin.platform;
+        String contestId = contestIdOptionMixin.contestId;
+
+        try {
+            List<Submission> submissions = platformService.getSubmissionHistory(platformName, contestId, taskId);
+            if (submissions.isEmpty()) {
+                output.out().println("No submissions found.");
+            } else {
+                displaySubmissions(submissions);
+            }
+            return 0;
+        } catch (PlatformException e) {
+            output.err().println("Error fetching submission history from '" + platformName + "': " + e.getMessage());
+            return 1;
+        } catch (ConnectionException e) {
+            output.err().println("Error fetching submission history from '" + platformName + "': " + e.getMessage());
+            return 1;
+        } catch (LoginException e) {
+            output.err().println("Error fetching submission history from '" + platformName + "': " + e.getMessage());
+            return 1;
+        } finally {
+            platformService.awaitBackgroundRefresh(REFRESH_WAIT);
+        }
+    }
+
+    private void displaySubmissions(List<Submission> submissions) {
+        output.out().println("\n--- Submissions (" + submissions.size() + ") ---");
+        output.out().printf("%-15s | %-10s | %-20s | %8s | %8s | %s%n", "Submission ID", "Task ID", "Submitted At", "Time", "Memory", "Verdict");
+        output.out().println(String.join("", Collections.nCopies(100, "-")));
+        for (Submission submission : submissions) {
+            OptionalLong time = submission.getExecutionTimeMillis();
+            OptionalLong memory = submission.getMemoryUsedBytes();
+            output.out().printf("%-15s | %-10s | %-20s | %8s | %8s | %s%n",
+                    submission.getSubmissionId(),
+                    submission.getTaskId(),
+                    submission.getSubmittedAt().map(t -> t.format(DATE_TIME_FORMATTER)).orElse("N/A"),
+                    time.isPresent() ? time.getAsLong() + " ms" : "-",
+                    memory.isPresent() ? memory.getAsLong() / 1024 + " KB" : "-",
+                    submission.getVerdict());
+        }
     }
-}
\ No newline at end of file
+}
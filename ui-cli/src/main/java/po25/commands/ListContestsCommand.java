@@ -6,9 +6,11 @@ import po25.ConnectionException;
 import po25.Contest;
 import po25.LoginException;
 import po25.PlatformException;
+import po25.commands.mixins.OutputMixin;
 import po25.commands.mixins.PlatformOptionMixin;
 import po25.service.PlatformService;
 
+import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
@@ -21,11 +23,15 @@ import java.util.concurrent.Callable;
 public class ListContestsCommand implements Callable<Integer> {
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Duration REFRESH_WAIT = Duration.ofSeconds(30);
     private static final int DEFAULT_CONTEST_LIMIT = 10;
 
     @CommandLine.Mixin
     private PlatformOptionMixin platformOptionMixin;
 
+    @CommandLine.Mixin
+    private OutputMixin output;
+
     @CommandLine.Option(names = {"-n", "--limit"},
             description = "Number of recent contests to display (default: " + DEFAULT_CONTEST_LIMIT + ", all: -1).",
             defaultValue = "" + DEFAULT_CONTEST_LIMIT)
@@ -34,7 +40,7 @@ public class ListContestsCommand implements Callable<Integer> {
     private PlatformService platformService;
 
     public ListContestsCommand() {
-        this.platformService = new PlatformService();
+        this.platformService = PlatformService.getShared();
     }
 
     @Override
@@ -42,33 +48,35 @@ public class ListContestsCommand implements Callable<Integer> {
         String platformName = platformOptionMixin.platform;
 
         if (limit <= 0 && limit != -1) {
-            System.err.println("Error: Limit must be a positive number.");
+            output.err().println("Error: Limit must be a positive number.");
             return 1;
         }
 
-        System.out.println("Fetching contests for platform '" + platformName + "'...");
+        output.out().println("Fetching contests for platform '" + platformName + "'...");
         try {
             List<Contest> contests = platformService.getContests(platformName);
 
             if (contests.isEmpty()) {
-                System.out.println("No contests found on platform '" + platformName + "'.");
+                output.out().println("No contests found on platform '" + platformName + "'.");
             } else {
                 if (limit == -1) limit = contests.size();
                 displayContestList(contests, limit);
             }
             return 0;
         } catch (PlatformException e) {
-            System.err.println("Error fetching contests from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching contests from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (ConnectionException e) {
-            System.err.println("Error fetching contests from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching contests from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (LoginException e) {
-            System.err.println("Error fetching contests from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching contests from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
+        } finally {
+            platformService.awaitBackgroundRefresh(REFRESH_WAIT);
         }
     }
 
@@ -80,10 +88,10 @@ public class ListContestsCommand implements Callable<Integer> {
      * @param displayedLimit The limit that was used to fetch these contests, for display context.
      */
     private void displayContestList(List<Contest> contests, int displayedLimit) {
-        System.out.println("\n--- Recent Contests (displaying up to " + displayedLimit + ", found " + contests.size() + ") ---");
-        System.out.printf("%-20s | %-40s | %-20s | %-20s%n",
+        output.out().println("\n--- Recent Contests (displaying up to " + displayedLimit + ", found " + contests.size() + ") ---");
+        output.out().printf("%-20s | %-40s | %-20s | %-20s%n",
                 "Contest ID", "Title", "Start Time", "End Time");
-        System.out.println(String.join("", Collections.nCopies(130, "-")));
+        output.out().println(String.join("", Collections.nCopies(130, "-")));
 
         int actualLimit = Math.min(displayedLimit, contests.size());
         for (int i = 0; i < actualLimit; i++) {
@@ -97,14 +105,14 @@ public class ListContestsCommand implements Callable<Integer> {
              * Contest -> getDescritption() method something is wrong
              */
 
-            System.out.printf("%-20s | %-40s | %-20s | %-20s%n",
+            output.out().printf("%-20s | %-40s | %-20s | %-20s%n",
                     contest.getId(),
                     contest.getTitle(),
                     startTimeStr,
                     endTimeStr);
 
         }
-        System.out.println("----------------------------------------------------------------------------------------------------------------------------------");
-        System.out.println("To view details of a specific contest, use the 'view-contest <Contest ID>' command.");
+        output.out().println("----------------------------------------------------------------------------------------------------------------------------------");
+        output.out().println("To view details of a specific contest, use the 'view-contest <Contest ID>' command.");
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import po25.ConnectionException;
 import po25.LoginException;
 import po25.PlatformException;
 import po25.RobotCheckException;
+import po25.commands.mixins.OutputMixin;
 import po25.commands.mixins.PlatformOptionMixin;
 import po25.service.PlatformService;
 
@@ -21,10 +22,13 @@ public class LoginCommand implements Callable<Integer> {
     @CommandLine.Mixin
     private PlatformOptionMixin platformOptionMixin;
 
+    @CommandLine.Mixin
+    private OutputMixin output;
+
     private PlatformService platformService;
 
     public LoginCommand() {
-        this.platformService = new PlatformService();
+        this.platformService = PlatformService.getShared();
     }
 
     @Override
@@ -35,44 +39,44 @@ public class LoginCommand implements Callable<Integer> {
 
         Console console = System.console();
         if (console == null) {
-            System.err.println("Error: Cannot access console to read username and password securely.");
-            System.err.println("This command requires an interactive console environment.");
+            output.err().println("Error: Cannot access console to read username and password securely.");
+            output.err().println("This command requires an interactive console environment.");
             return 1;
         }
 
         try {
             usernameInput = console.readLine("Enter username for %s: ", platformName);
             if (usernameInput == null || usernameInput.trim().isEmpty()) {
-                System.err.println("Username cannot be empty.");
+                output.err().println("Username cannot be empty.");
                 return 1;
             }
             usernameInput = usernameInput.trim();
 
             passwordInput = console.readPassword("Enter password for %s: ", usernameInput);
             if (passwordInput == null || passwordInput.length == 0) {
-                System.err.println("Password cannot be empty.");
+                output.err().println("Password cannot be empty.");
                 return 1;
             }
 
-            System.out.println("Attempting to log into " + platformName + " as " + usernameInput + "...");
+            output.out().println("Attempting to log into " + platformName + " as " + usernameInput + "...");
             platformService.login(platformName, usernameInput, passwordInput);
-            System.out.println("Successfully logged into " + platformName + " as " + usernameInput + "!");
+            output.out().println("Successfully logged into " + platformName + " as " + usernameInput + "!");
             return 0;
         } catch (PlatformException e) {
-            System.err.println("Login failed: " + e.getMessage());
+            output.err().println("Login failed: " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (ConnectionException e) {
-            System.err.println("Login failed: " + e.getMessage());
+            output.err().println("Login failed: " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (LoginException e) {
-            System.err.println("Login failed: " + e.getMessage());
+            output.err().println("Login failed: " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (RobotCheckException e) {
             // TODO
-            System.err.println("Login failed: " + e.getMessage());
+            output.err().println("Login failed: " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } finally {
@@ -0,0 +1,79 @@
+package po25.commands;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import po25.Metrics;
+import po25.commands.mixins.OutputMixin;
+import po25.service.PlatformService;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Command(name = "stats",
+        description = "Shows how long network fetches, parsing and browser leases took, and how caches performed, "
+                + "in the daemon (or in this process when no daemon is running).",
+        mixinStandardHelpOptions = true)
+public class StatsCommand implements Callable<Integer> {
+
+    @CommandLine.Mixin
+    private OutputMixin output;
+
+    @CommandLine.Option(names = {"--reset"},
+            description = "Zero the counters and timers after printing them.")
+    private boolean reset;
+
+    @Override
+    public Integer call() {
+        if (!Metrics.ENABLED) {
+            output.out().println("Metrics are disabled (-Ddccp.metrics=false).");
+            return 0;
+        }
+        if (!PlatformService.isLongLived()) {
+            output.out().println("No daemon is running; only this command's own process is shown.");
+        }
+
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        if (snapshot.timers().isEmpty() && snapshot.counters().isEmpty() && snapshot.gauges().isEmpty()) {
+            output.out().println("Nothing recorded yet.");
+            return 0;
+        }
+        displayTimers(snapshot.timers());
+        displayValues("Counters", snapshot.counters());
+        displayValues("Gauges", snapshot.gauges());
+
+        if (reset) {
+            Metrics.reset();
+        }
+        return 0;
+    }
+
+    private void displayTimers(Map<String, Metrics.TimerStats> timers) {
+        if (timers.isEmpty()) return;
+        output.out().println("\n--- Operations (" + timers.size() + ") ---");
+        output.out().printf("%-32s | %8s | %10s | %10s | %10s | %10s%n", "Operation", "Count", "p50", "p99", "Max", "Total");
+        output.out().println(String.join("", Collections.nCopies(95, "-")));
+        for (Map.Entry<String, Metrics.TimerStats> entry : timers.entrySet()) {
+            Metrics.TimerStats stats = entry.getValue();
+            output.out().printf("%-32s | %8d | %10s | %10s | %10s | %10s%n",
+                    entry.getKey(),
+                    stats.count(),
+                    millis(stats.p50Nanos()),
+                    millis(stats.p99Nanos()),
+                    millis(stats.maxNanos()),
+                    millis(stats.totalNanos()));
+        }
+    }
+
+    private void displayValues(String title, Map<String, Long> values) {
+        if (values.isEmpty()) return;
+        output.out().println("\n--- " + title + " (" + values.size() + ") ---");
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            output.out().printf("%-32s | %8d%n", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1_000_000.0);
+    }
+}
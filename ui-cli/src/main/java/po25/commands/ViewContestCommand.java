@@ -4,16 +4,21 @@ import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import po25.*;
 import po25.commands.mixins.ContestIdOptionMixin;
+import po25.commands.mixins.OutputMixin;
 import po25.commands.mixins.PlatformOptionMixin;
 import po25.service.PlatformService;
+import po25.service.StatementPrefetcher;
 
+import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 @Command(name = "view-contest",
         aliases = {"vc", "lt"},
@@ -22,6 +27,7 @@ import java.util.concurrent.CompletionException;
 public class ViewContestCommand implements Callable<Integer> {
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Duration REFRESH_WAIT = Duration.ofSeconds(30);
 
     @CommandLine.Mixin
     private PlatformOptionMixin platformOptionMixin;
@@ -29,10 +35,17 @@ public class ViewContestCommand implements Callable<Integer> {
     @CommandLine.Mixin
     private ContestIdOptionMixin contestIdOptionMixin;
 
+    @CommandLine.Mixin
+    private OutputMixin output;
+
+    @CommandLine.Option(names = {"--prefetch"},
+            description = "Also download every task statement into the local cache, so viewing a task later needs no request.")
+    private boolean prefetch;
+
     private PlatformService platformService;
 
     public ViewContestCommand() {
-        this.platformService = new PlatformService();
+        this.platformService = PlatformService.getShared();
     }
 
     @Override
@@ -40,53 +53,77 @@ public class ViewContestCommand implements Callable<Integer> {
         String platformName = platformOptionMixin.platform;
         String contestIdToView = contestIdOptionMixin.contestId;
 
-        System.out.println("Fetching details for contest '" + contestIdToView + "' on platform '" + platformName + "'...");
+        output.out().println("Fetching details for contest '" + contestIdToView + "' on platform '" + platformName + "'...");
         try {
             Optional<Contest> contestOpt = platformService.getContestById(platformName, contestIdToView);
 
             if (contestOpt.isPresent()) {
                 displayContestDetails(contestOpt.get());
             } else {
-                System.out.println("Contest with ID '" + contestIdToView + "' not found on platform '" + platformName + "'.");
+                output.out().println("Contest with ID '" + contestIdToView + "' not found on platform '" + platformName + "'.");
             }
             return 0;
         } catch (PlatformException e) {
-            System.err.println("Error fetching contest details from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching contest details from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (ConnectionException e) {
-            System.err.println("Error fetching contest details from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching contest details from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         }catch (LoginException e) {
-            System.err.println("Error fetching contest details from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching contest details from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
+        } finally {
+            platformService.awaitBackgroundRefresh(REFRESH_WAIT);
         }
     }
 
     private void displayContestDetails(Contest contest) throws PlatformException, ConnectionException, LoginException {
-        System.out.println("\n--- Contest Details ---");
-        System.out.println("ID:            " + contest.getId());
-        System.out.println("Title:         " + contest.getTitle());
-        contest.getDescription().ifPresent(desc -> System.out.println("Description:   " + desc));
-        contest.getStartTime().ifPresent(time -> System.out.println("Start Time:    " + time.format(DATE_TIME_FORMATTER)));
-        contest.getEndTime().ifPresent(time -> System.out.println("End Time:      " + time.format(DATE_TIME_FORMATTER)));
-        System.out.println("-----------------------");
+        output.out().println("\n--- Contest Details ---");
+        output.out().println("ID:            " + contest.getId());
+        output.out().println("Title:         " + contest.getTitle());
+        contest.getDescription().ifPresent(desc -> output.out().println("Description:   " + desc));
+        contest.getStartTime().ifPresent(time -> output.out().println("Start Time:    " + time.format(DATE_TIME_FORMATTER)));
+        contest.getEndTime().ifPresent(time -> output.out().println("End Time:      " + time.format(DATE_TIME_FORMATTER)));
+        output.out().println("-----------------------");
 
         List<Task> tasks = contest.getTasks();
         if (tasks == null || tasks.isEmpty()) {
-            System.out.println("No tasks found for this contest or tasks are not yet loaded.");
+            output.out().println("No tasks found for this contest or tasks are not yet loaded.");
         } else {
             tasks.sort(Comparator.comparing(Task::getName, String.CASE_INSENSITIVE_ORDER));
 
-            System.out.println("\n--- Tasks in this Contest (" + tasks.size() + ") ---");
-            System.out.printf("%-15s | %s%n", "Task ID", "Task Name");
-            System.out.println(String.join("", Collections.nCopies(50, "-")));
+            output.out().println("\n--- Tasks in this Contest (" + tasks.size() + ") ---");
+            output.out().printf("%-15s | %s%n", "Task ID", "Task Name");
+            output.out().println(String.join("", Collections.nCopies(50, "-")));
             for (Task task : tasks) {
-                System.out.printf("%-15s | %s%n", task.getId(), task.getName());
+                output.out().printf("%-15s | %s%n", task.getId(), task.getName());
+            }
+            output.out().println("------------------------------------");
+
+            if (prefetch) {
+                prefetchStatements(tasks);
+            }
+        }
+    }
+
+    private void prefetchStatements(List<Task> tasks) {
+        output.out().println("\nPrefetching " + tasks.size() + " statement(s)...");
+        List<CompletableFuture<String>> futures = StatementPrefetcher.getShared().prefetch(tasks);
+        int loaded = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                futures.get(i).get();
+                loaded++;
+            } catch (ExecutionException e) {
+                output.err().println("Failed to prefetch task '" + tasks.get(i).getId() + "': " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-            System.out.println("------------------------------------");
         }
+        output.out().println("Prefetched " + loaded + "/" + tasks.size() + " statement(s).");
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import po25.LoginException;
 import po25.PlatformException;
 import po25.Task;
 import po25.commands.mixins.ContestIdOptionMixin;
+import po25.commands.mixins.OutputMixin;
 import po25.commands.mixins.PlatformOptionMixin;
 import po25.commands.mixins.TaskIdOptionMixin;
 import po25.service.PlatformService;
@@ -30,10 +31,13 @@ public class ViewTaskCommand implements Callable<Integer> {
     @CommandLine.Mixin
     private TaskIdOptionMixin taskIdOptionMixin;
 
+    @CommandLine.Mixin
+    private OutputMixin output;
+
     private PlatformService platformService;
 
     public ViewTaskCommand() {
-        this.platformService = new PlatformService();
+        this.platformService = PlatformService.getShared();
     }
 
     @Override
@@ -42,7 +46,7 @@ public class ViewTaskCommand implements Callable<Integer> {
         String contestId = contestIdMixin.contestId;
         String taskId = taskIdOptionMixin.taskId;
 
-        System.out.println("Fetching details for task '" + taskId + "' in contest '" + contestId + "' on platform '" + platformName + "'...");
+        output.out().println("Fetching details for task '" + taskId + "' in contest '" + contestId + "' on platform '" + platformName + "'...");
 
         try {
             Optional<Task> taskOptional = platformService.getTaskInContest(platformName, contestId, taskId);
@@ -51,52 +55,52 @@ public class ViewTaskCommand implements Callable<Integer> {
                 Task task = taskOptional.get();
                 displayTaskDetails(task);
             } else {
-                System.out.println("Task '" + taskId + "' in contest '" + contestId + "' not found on platform '" + platformName + "'.");
+                output.out().println("Task '" + taskId + "' in contest '" + contestId + "' not found on platform '" + platformName + "'.");
             }
             return 0;
         } catch (PlatformException e) {
-            System.err.println("Error fetching task details from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching task details from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         } catch (ConnectionException e) {
-            System.err.println("Error fetching task details from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching task details from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         }  catch (LoginException e) {
-            System.err.println("Error fetching task details from '" + platformName + "': " + e.getMessage());
+            output.err().println("Error fetching task details from '" + platformName + "': " + e.getMessage());
             // e.printStackTrace();
             return 1;
         }
     }
 
     private void displayTaskDetails(Task task) {
-        System.out.println("\n--- Task Details ---");
-        System.out.println("Task ID:       " + task.getId());
-        System.out.println("Task Name:     " + task.getName());
-        System.out.println("--------------------");
+        output.out().println("\n--- Task Details ---");
+        output.out().println("Task ID:       " + task.getId());
+        output.out().println("Task Name:     " + task.getName());
+        output.out().println("--------------------");
 
-        System.out.println("\nContent/Problem Statement:");
+        output.out().println("\nContent/Problem Statement:");
         try {
-            System.out.println(task.getContent());
+            output.out().println(task.getContent());
         } catch (Exception e) {
-            System.out.println("[Error fetching task content: " + e.getMessage() + "]");
+            output.out().println("[Error fetching task content: " + e.getMessage() + "]");
         }
-        System.out.println("--------------------");
+        output.out().println("--------------------");
 
         task.getSampleInput().ifPresent(input -> {
-            System.out.println("\nSample Input:");
-            System.out.println(input);
-            System.out.println("--------------------");
+            output.out().println("\nSample Input:");
+            output.out().println(input);
+            output.out().println("--------------------");
         });
 
-        task.getSampleOutput().ifPresent(output -> {
-            System.out.println("\nSample Output:");
-            System.out.println(output);
-            System.out.println("--------------------");
+        task.getSampleOutput().ifPresent(sample -> {
+            output.out().println("\nSample Output:");
+            output.out().println(sample);
+            output.out().println("--------------------");
         });
 
-        task.getTimeLimit().ifPresent(limit -> System.out.println("Time Limit:    " + limit));
-        task.getMemoryLimit().ifPresent(limit -> System.out.println("Memory Limit:  " + limit));
-        System.out.println("--------------------");
+        task.getTimeLimit().ifPresent(limit -> output.out().println("Time Limit:    " + limit));
+        task.getMemoryLimit().ifPresent(limit -> output.out().println("Memory Limit:  " + limit));
+        output.out().println("--------------------");
     }
 }
\ No newline at end of file
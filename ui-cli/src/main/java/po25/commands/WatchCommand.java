@@ -0,0 +1,124 @@
+package po25.commands;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import po25.ConnectionException;
+import po25.LoginException;
+import po25.Platform;
+import po25.PlatformException;
+import po25.Submission;
+import po25.Verdict;
+import po25.commands.mixins.ContestIdOptionMixin;
+import po25.commands.mixins.OutputMixin;
+import po25.commands.mixins.PlatformOptionMixin;
+import po25.service.PlatformService;
+import po25.service.SubmissionWatcher;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "watch",
+        description = "Follows pending submissions and prints their verdicts as the judge reports them.",
+        mixinStandardHelpOptions = true)
+public class WatchCommand implements Callable<Integer> {
+
+    @CommandLine.Mixin
+    private PlatformOptionMixin platformOptionMixin;
+
+    @CommandLine.Mixin
+    private ContestIdOptionMixin contestIdOptionMixin;
+
+    @CommandLine.Mixin
+    private OutputMixin output;
+
+    @CommandLine.Parameters(arity = "0..*", paramLabel = "SUBMISSION_ID",
+            description = "Submissions to watch (default: every pending submission of the contest).")
+    private List<String> submissionIds = new ArrayList<>();
+
+    @CommandLine.Option(names = {"--timeout"}, defaultValue = "1800",
+            description = "Give up after this many seconds (default: ${DEFAULT-VALUE}).")
+    private long timeoutSeconds;
+
+    private PlatformService platformService;
+
+    public WatchCommand() {
+        this.platformService = PlatformService.getShared();
+    }
+
+    @Override
+    public Integer call() {
+        String platformName = platformOptionMixin.platform;
+        String contestId = contestIdOptionMixin.contestId;
+        SubmissionWatcher watcher = SubmissionWatcher.getShared();
+
+        List<Submission> watched;
+        try {
+            watched = platformService.watchSubmissions(platformName, contestId, submissionIds, watcher);
+        } catch (PlatformException | ConnectionException | LoginException e) {
+            output.err().println("Error watching submissions on '" + platformName + "': " + e.getMessage());
+            return 1;
+        }
+        if (watched.isEmpty()) {
+            output.out().println("No pending submissions.");
+            return 0;
+        }
+
+        // the first refresh is at least SubmissionWatcher.MIN_DELAY away, so no verdict is missed
+        Printer printer = new Printer(watched, output.out(), output.err());
+        watcher.addListener(printer);
+        CountDownLatch done = printer.done;
+        output.out().println("Watching " + watched.size() + " submission(s)...");
+        try {
+            if (!done.await(timeoutSeconds, TimeUnit.SECONDS)) {
+                output.err().println("Timed out with " + done.getCount() + " submission(s) still pending.");
+                return 1;
+            }
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        } finally {
+            watcher.removeListener(printer);
+        }
+    }
+
+    /**
+     * Prints the verdicts of the watched submissions and counts down as they finish.
+     */
+    private static class Printer implements SubmissionWatcher.Listener {
+        private final Set<String> ids = new HashSet<>();
+        private final CountDownLatch done;
+        private final PrintWriter out;
+        private final PrintWriter err;
+
+        Printer(List<Submission> watched, PrintWriter out, PrintWriter err) {
+            this.out = out;
+            this.err = err;
+            for (Submission submission : watched) {
+                ids.add(submission.getSubmissionId());
+            }
+            this.done = new CountDownLatch(ids.size());
+        }
+
+        @Override
+        public void verdictChanged(Platform platform, Submission submission, Verdict verdict) {
+            if (!ids.contains(submission.getSubmissionId())) return;
+            out.printf("%-15s | %-10s | %s%n", submission.getSubmissionId(), submission.getTaskId(),
+                    verdict.isTerminal() ? submission.getVerdict() : verdict.toString());
+            if (verdict.isTerminal()) done.countDown();
+        }
+
+        @Override
+        public void watchFailed(Platform platform, Submission submission, Exception cause) {
+            if (!ids.contains(submission.getSubmissionId())) return;
+            err.println("Stopped watching " + submission.getSubmissionId() + ": " + cause.getMessage());
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package po25.commands.mixins;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+import java.io.PrintWriter;
+
+/**
+ * Gives a command the writers of the CommandLine running it, so that a daemon can hand each
+ * request its own output without redirecting System.out for the whole process.
+ * It has no options, so picocli needs the bare {@code @Command} to accept it as a mixin.
+ */
+@Command
+public class OutputMixin {
+
+    @Spec(Spec.Target.MIXEE)
+    private CommandSpec spec;
+
+    public PrintWriter out() {
+        return spec.commandLine().getOut();
+    }
+
+    public PrintWriter err() {
+        return spec.commandLine().getErr();
+    }
+}
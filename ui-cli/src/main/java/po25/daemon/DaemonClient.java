@@ -0,0 +1,101 @@
+package po25.daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forwards a command line to a running daemon and prints its output.
+ */
+public final class DaemonClient {
+    /**
+     * Commands that always run in the calling process: login needs the terminal, daemon manages the daemon itself
+     * and watch prints verdicts as they arrive and would hold the daemon for its whole run.
+     */
+    private static final List<String> LOCAL_COMMANDS = Arrays.asList("login", "daemon", "watch");
+
+    private DaemonClient() {
+    }
+
+    /**
+     * @return true if the command may run in the daemon. {@code DCCP_NO_DAEMON} disables forwarding.
+     */
+    public static boolean shouldForward(String[] args) {
+        return args.length > 0
+                && !LOCAL_COMMANDS.contains(args[0])
+                && System.getenv("DCCP_NO_DAEMON") == null
+                && Files.exists(DaemonProtocol.socketPath());
+    }
+
+    /**
+     * Runs the command in the daemon.
+     *
+     * @return the command's exit code, or null if no daemon accepted the request (the caller then runs it locally).
+     */
+    public static Integer forward(String[] args) {
+        try {
+            return send(args);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Asks a running daemon to drop its platforms, e.g. after a login in this process.
+     * Does nothing when no daemon is running.
+     */
+    public static void resetIfRunning() {
+        if (!Files.exists(DaemonProtocol.socketPath())) return;
+        try {
+            send(new String[]{"daemon", "--reset"});
+        } catch (IOException ignored) {
+        }
+    }
+
+    static Integer send(String[] args) throws IOException {
+        Path socket = DaemonProtocol.socketPath();
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            OutputStream out = Channels.newOutputStream(channel);
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(DaemonProtocol.HEADER + "\n");
+            for (String arg : args) {
+                writer.write(arg + "\n");
+            }
+            writer.write(DaemonProtocol.END + "\n");
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            if (!DaemonProtocol.ACK.equals(reader.readLine())) {
+                throw new IOException("The dccp daemon did not accept the request");
+            }
+            // from here on the daemon may have run the command, so a failure must not make the caller run it again
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(DaemonProtocol.EXIT_PREFIX)) {
+                        return Integer.parseInt(line.substring(DaemonProtocol.EXIT_PREFIX.length()).trim());
+                    }
+                    System.out.println(line);
+                }
+            } catch (IOException ignored) {
+                // reported below like a closed connection
+            }
+            // the daemon went away mid-command; its output so far was printed
+            System.err.println("Error: The dccp daemon closed the connection before the command finished.");
+            return 1;
+        }
+    }
+}
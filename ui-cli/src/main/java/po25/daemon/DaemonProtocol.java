@@ -0,0 +1,32 @@
+package po25.daemon;
+
+import po25.AbstractPlatform;
+
+import java.nio.file.Path;
+
+/**
+ * Wire format between the dccp launcher and the daemon, over a Unix domain socket.
+ * A request is the header line, the command line arguments one per line and the end line.
+ * The response starts with the ack line, sent once the whole request was read and before the
+ * command starts, then the command's output and the exit line, after which the daemon closes
+ * the connection. A client may run the command itself only if no ack arrived; after the ack
+ * the command may already have had effects (e.g. a submission), so it must not run twice.
+ * Kept line-based so {@code dccp.sh} can speak it with {@code nc -U}.
+ */
+public final class DaemonProtocol {
+    public static final String HEADER = "DCCP/2";
+    public static final String END = "#dccp-end";
+    public static final String ACK = "#dccp-ack";
+    public static final String EXIT_PREFIX = "#dccp-exit:";
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * @return the socket the daemon listens on, {@code ~/.dccp/daemon/daemon.sock}. The socket gets
+     * a directory of its own so that the directory can be private to the user before it is bound.
+     */
+    public static Path socketPath() {
+        return AbstractPlatform.getConfigDirectory().resolve("daemon").resolve("daemon.sock");
+    }
+}
@@ -0,0 +1,216 @@
+package po25.daemon;
+
+import picocli.CommandLine;
+import po25.Main;
+import po25.MetadataStore;
+import po25.service.PlatformService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps one warm {@link PlatformService} and runs forwarded commands against it, one at a time.
+ * Each command prints through its CommandLine's writers, which point at the client's connection.
+ */
+public class DaemonServer {
+    private final Path socket;
+    private final Duration idleTimeout;
+    private ServerSocketChannel server;
+    private volatile boolean running = true;
+    private volatile boolean busy;
+    private volatile long lastRequest = System.nanoTime();
+
+    public DaemonServer(Path socket, Duration idleTimeout) {
+        this.socket = socket;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Listens until stopped with {@code dccp daemon --stop} or idle for longer than the timeout.
+     *
+     * @throws IOException if the socket cannot be bound, e.g. another daemon is running.
+     */
+    public void run() throws IOException {
+        if (Files.exists(socket)) {
+            if (isListening()) {
+                throw new IOException("A dccp daemon is already listening on " + socket);
+            }
+            // left behind by a daemon that was killed
+            Files.delete(socket);
+        }
+        createPrivateDirectory(socket.getParent());
+        PlatformService.setLongLived(true);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            this.server = server;
+            server.bind(UnixDomainSocketAddress.of(socket));
+            restrictToOwner();
+            System.out.println("dccp daemon listening on " + socket);
+            startIdleWatchdog();
+            while (running) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException e) {
+                    if (!running) break;
+                    throw e;
+                }
+                busy = true;
+                try (SocketChannel connection = client) {
+                    handle(connection);
+                } catch (IOException e) {
+                    System.err.println("dccp daemon: " + e.getMessage());
+                } finally {
+                    lastRequest = System.nanoTime();
+                    busy = false;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+            MetadataStore.getDefault().flush();
+        }
+    }
+
+    private boolean isListening() {
+        try {
+            DaemonClient.send(new String[]{"daemon", "--ping"});
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void handle(SocketChannel connection) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8));
+        if (!DaemonProtocol.HEADER.equals(reader.readLine())) {
+            throw new IOException("Unsupported request");
+        }
+        List<String> args = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals(DaemonProtocol.END)) {
+            args.add(line);
+        }
+        if (line == null) {
+            // the client went away mid-request; never run a truncated command line
+            throw new IOException("Incomplete request");
+        }
+
+        OutputStream out = Channels.newOutputStream(connection);
+        PrintStream client = new PrintStream(out, true, "UTF-8");
+        client.println(DaemonProtocol.ACK);
+        int exitCode;
+        if (!args.isEmpty() && args.get(0).equals("daemon")) {
+            exitCode = control(args, client);
+        } else {
+            exitCode = execute(args.toArray(new String[0]), client);
+        }
+        client.println(DaemonProtocol.EXIT_PREFIX + exitCode);
+        client.flush();
+    }
+
+    /**
+     * Runs a command with the connection as its own output. System.out and System.err are left alone:
+     * background refreshes and the verdict watcher outlive the command and print to the daemon's log.
+     */
+    private int execute(String[] args, PrintStream client) {
+        PrintWriter writer = new PrintWriter(client, true);
+        try {
+            return new CommandLine(new Main())
+                    .setExecutionStrategy(new CommandLine.RunLast())
+                    .setOut(writer)
+                    .setErr(writer)
+                    .execute(args);
+        } finally {
+            writer.flush();
+            MetadataStore.getDefault().flush();
+        }
+    }
+
+    private int control(List<String> args, PrintStream client) {
+        if (args.contains("--stop")) {
+            running = false;
+            client.println("dccp daemon stopped.");
+            closeQuietly();
+            return 0;
+        }
+        if (args.contains("--reset")) {
+            PlatformService.resetShared();
+            client.println("dccp daemon reset; platforms will be reloaded on the next command.");
+            return 0;
+        }
+        if (args.contains("--ping")) {
+            return 0;
+        }
+        client.println("A dccp daemon is already running on " + socket + ".");
+        return 1;
+    }
+
+    private void startIdleWatchdog() {
+        if (idleTimeout.isZero()) return;
+        Thread watchdog = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(Math.min(idleTimeout.toMillis(), 60_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!busy && System.nanoTime() - lastRequest > idleTimeout.toNanos()) {
+                    System.out.println("dccp daemon idle for " + idleTimeout.toMinutes() + " minutes, stopping.");
+                    running = false;
+                    closeQuietly();
+                }
+            }
+        }, "dccp-daemon-idle");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    private void closeQuietly() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void restrictToOwner() {
+        try {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // not a POSIX file system; the socket lives in the user's own config directory anyway
+        }
+    }
+
+    /**
+     * Creates the socket's directory accessible only to the user, so that nobody else can connect
+     * in the moment between binding the socket and restricting its own permissions. A directory
+     * left by an earlier run is narrowed too, in case it was created with the default umask.
+     */
+    private static void createPrivateDirectory(Path directory) throws IOException {
+        Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+        try {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+            Files.setPosixFilePermissions(directory, ownerOnly);
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system, permissions cannot be set this way
+            Files.createDirectories(directory);
+        }
+    }
+}
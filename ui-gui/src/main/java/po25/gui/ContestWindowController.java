@@ -15,13 +15,14 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.Pair;
 import po25.*;
+import po25.service.StatementPrefetcher;
+import po25.service.SubmissionWatcher;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 
 
@@ -42,12 +43,29 @@ public class ContestWindowController {
 
     private final ObservableList<Submission> subsObservable = FXCollections.observableArrayList();
     private final Map<String,String> verdictCache = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler =
-            Executors.newSingleThreadScheduledExecutor(r -> { Thread t = new Thread(r); t.setDaemon(true); return t; });
+    private final SubmissionWatcher.Listener verdictListener = new SubmissionWatcher.Listener() {
+        @Override
+        public void verdictChanged(po25.Platform p, Submission submission, Verdict verdict) {
+            if (p != platform || !verdictCache.containsKey(submission.getSubmissionId())) return;
+            verdictCache.put(submission.getSubmissionId(), verdict.isTerminal() ? submission.getVerdict() : verdict.toString());
+            Platform.runLater(subsList::refresh);
+        }
+
+        @Override
+        public void watchFailed(po25.Platform p, Submission submission, Exception cause) {
+            if (p != platform || !verdictCache.containsKey(submission.getSubmissionId())) return;
+            verdictCache.put(submission.getSubmissionId(), "?");
+            Platform.runLater(() -> {
+                infoLabel.setText("Stopped watching " + submission.getSubmissionId() + ": " + cause.getMessage());
+                subsList.refresh();
+            });
+        }
+    };
 
     void init(po25.Platform p, Contest c) {
         platform = p;
         contest = c;
+        SubmissionWatcher.getShared().addListener(verdictListener);
         contestLabel.setText(c.getTitle());
         setupTaskViewer();
 
@@ -85,6 +103,10 @@ public class ContestWindowController {
                 setText(empty || t == null ? null : t.getName());
             }
         });
+        // the selected task is usually the next one opened, so its statement goes first
+        tasksList.getSelectionModel().selectedItemProperty().addListener((obs, old, t) -> {
+            if (t != null) StatementPrefetcher.getShared().prioritize(t);
+        });
         tasksList.setOnMouseClicked(e -> {
             if (e.getClickCount() == 2) {
                 po25.Task t = tasksList.getSelectionModel().getSelectedItem();
@@ -103,12 +125,10 @@ public class ContestWindowController {
         if (cssUrl != null) dp.getStylesheets().add(cssUrl.toExternalForm());
         dp.getStyleClass().add("root-pane");
 
-        TextArea contentArea;
-        try {
-            contentArea = new TextArea(t.getContent());
-        } catch (Exception ex) {
-            contentArea = new TextArea("Unable to load statement:\n" + ex.getMessage());
-        }
+        TextArea contentArea = new TextArea("Loading statement...");
+        StatementPrefetcher.getShared().prioritize(t).whenComplete((content, ex) -> Platform.runLater(() ->
+                contentArea.setText(ex == null ? content
+                        : "Unable to load statement:\n" + ex.getMessage())));
         contentArea.setEditable(false);
         contentArea.setWrapText(true);
         contentArea.setPrefSize(600, 420);
@@ -127,39 +147,57 @@ public class ContestWindowController {
 
 
     private void loadTasksAsync() {
-        Task<List<po25.Task>> task = new Task<>() {
-            @Override protected List<po25.Task> call() throws Exception {
-                return contest.getTasks();
+        Task<Collection<po25.Task>> task = new Task<>() {
+            @Override protected Collection<po25.Task> call() throws Exception {
+                Metrics.Timer.Sample sample = Metrics.timer("gui.tasks.load").start();
+                try {
+                    return contest.getTaskView();
+                } finally {
+                    sample.stop();
+                }
             }
         };
-        task.setOnSucceeded(e ->
-                tasksList.setItems(FXCollections.observableArrayList(task.getValue()))
-        );
+        task.setOnSucceeded(e -> {
+            tasksList.setItems(FXCollections.observableArrayList(task.getValue()));
+            StatementPrefetcher.getShared().prefetch(task.getValue());
+        });
         task.setOnFailed(e ->
                 Platform.runLater(() -> infoLabel.setText("Failed to load tasks"))
         );
-        new Thread(task).start();
+        IoScope.startVirtual("load-tasks", task);
     }
 
     private void loadSubsAsync() {
+        List<Submission> pending = new ArrayList<>();
         Task<List<Submission>> task = new Task<>() {
             @Override protected List<Submission> call() throws Exception {
-                return contest.getSubmissionHistory();
+                Metrics.Timer.Sample sample = Metrics.timer("gui.submissions.load").start();
+                List<Submission> all;
+                try {
+                    all = contest.getSubmissionHistory();
+                } finally {
+                    sample.stop();
+                }
+                // peek, never fetch: the watcher refreshes the pending ones with one batched call
+                for (Submission s : all) {
+                    Verdict verdict = s.peekVerdictType();
+                    verdictCache.put(s.getSubmissionId(), verdict.isTerminal() ? s.peekVerdict() : verdict.toString());
+                    if (!verdict.isTerminal()) pending.add(s);
+                }
+                return all;
             }
         };
         task.setOnSucceeded(e -> {
+            // the cache was seeded before any submission is watched, so no verdict change is dropped
             List<Submission> all = task.getValue();
-            Platform.runLater(() -> {
-                subsObservable.setAll(all);
-                for (Submission s : all) verdictCache.put(s.getSubmissionId(), "...");
-                subsList.refresh();
-            });
-            all.forEach(this::pollUntilDone);
+            subsObservable.setAll(all);
+            subsList.refresh();
+            pending.forEach(s -> SubmissionWatcher.getShared().watch(platform, s));
         });
         task.setOnFailed(e ->
                 Platform.runLater(() -> infoLabel.setText("Failed to load submissions"))
         );
-        new Thread(task).start();
+        IoScope.startVirtual("load-submissions", task);
     }
     @FXML
     private void handleChromePathAction() {
@@ -270,34 +308,19 @@ public class ContestWindowController {
             verdictCache.put(sub.getSubmissionId(), "...");
             subsObservable.add(0, sub);
             subsList.scrollTo(0);
-            pollUntilDone(sub);
+            SubmissionWatcher.getShared().watch(platform, sub);
         });
         task.setOnFailed(e -> {
             infoLabel.setText("Submit failed");
             submitButton.setDisable(false);
         });
-        new Thread(task).start();
+        IoScope.startVirtual("submit", task);
     }
 
-
-
-    private void pollUntilDone(Submission sub) {
-        final AtomicInteger fails = new AtomicInteger(0);
-
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                String v = sub.getVerdict();
-                verdictCache.put(sub.getSubmissionId(), v);
-                Platform.runLater(subsList::refresh);
-
-                if (!"QUE".equals(v) && !"...".equals(v) && !"Waiting".equals(v))
-                    throw new CancellationException();
-
-                fails.set(0);
-            } catch (Exception ex) {
-                if (fails.incrementAndGet() >= 10)
-                    throw new CancellationException();
-            }
-        }, 0, 15, TimeUnit.SECONDS);
+    /**
+     * Stops updating this window's verdicts; called when the window is closed.
+     */
+    void close() {
+        SubmissionWatcher.getShared().removeListener(verdictListener);
     }
 }
@@ -14,7 +14,7 @@ import javafx.geometry.Insets;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
 
 public class MainWindowController {
@@ -143,17 +143,22 @@ public class MainWindowController {
     }
 
     private void loadContestsAsync() {
-        javafx.concurrent.Task<List<Contest>> task = new javafx.concurrent.Task<>() {
-            @Override protected List<Contest> call() throws Exception {
-                return platform.getAllContests();
+        javafx.concurrent.Task<Collection<Contest>> task = new javafx.concurrent.Task<>() {
+            @Override protected Collection<Contest> call() throws Exception {
+                Metrics.Timer.Sample sample = Metrics.timer("gui.contests.load").start();
+                try {
+                    return platform.getContestView();
+                } finally {
+                    sample.stop();
+                }
             }
         };
         task.setOnSucceeded(e -> {
-            List<Contest> cs = task.getValue();
+            Collection<Contest> cs = task.getValue();
             contestsList.setItems(FXCollections.observableArrayList(cs));
         });
 
-        new Thread(task).start();
+        IoScope.startVirtual("load-contests", task);
     }
 
     private void openContestWindow(Contest contest) {
@@ -171,6 +176,7 @@ public class MainWindowController {
 
             ContestWindowController cwc = fx.getController();
             cwc.init(platform, contest);
+            st.setOnHidden(e -> cwc.close());
 
             st.show();
         } catch (Exception ex) {